@@ -1,18 +1,41 @@
 public class ATM {
     //instance has been set as private so, it will not be access to other class.
-    private String name;
-    private double balance;
+    //the balance itself is not a field any more: it lives in an AccountStore (off-heap, long paise/cents)
+    //and this object only remembers which account it is. Still private, still only readable through showBalance.
+    private final AccountStore store;
+    private final String name;
 
     //using constructor to set the variables
     //Note can also be used set method to set the variables depends on how you one to. here constructor is used.
+    //balance is in whole units (rupees), the store keeps it as minor units. It is only the opening balance:
+    //the same name again means the same account, and its balance is left as it is (not reset).
     ATM(String name, int balance){
+        this(AccountStore.global(), name, balance);
+    }
+
+    ATM(AccountStore store, String name, int balance){
+        this.store = store;
         this.name = name;
-        this.balance = balance;
+        if(store.find(name) < 0){
+            store.open(name, balance * 100L);
+        }
     }
     //this method is used to show balance also get be called as get method to get the balance;
    void showBalance(){
        System.out.println("Account name: "+name);
-       System.out.println("Your account balance is: "+balance);
+       System.out.println("Your account balance is: "+AccountStore.formatMoney(store.balance(name)));
+   }
+   //takes money out (whole units), false if the balance is too low. Safe to call while other threads call showBalance.
+   boolean withdraw(int amount){
+       int account = store.find(name);
+       return store.withdraw(account, amount * 100L);
+   }
+   //same two lines written into a RecordRenderer buffer, for printing many accounts
+   void showBalance(RecordRenderer out){
+       out.append("Account name: ").append(name).newline();
+       out.append("Your account balance is: ");
+       AccountStore.appendMoney(out, store.balance(name));
+       out.newline();
    }
     public static void main(String[] args) {
           ATM atm1 = new ATM("Pankaj", 100000);
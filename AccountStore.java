@@ -0,0 +1,417 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Balances of many ATM accounts kept OUTSIDE the Java heap (direct ByteBuffers), so tens of millions of accounts
+ * are not tens of millions of objects for the GC to walk.
+ *
+ *  balance   -> long of minor units (paise / cents), 100 = 1.00, no double rounding errors,
+ *               next to a sequence number (seqlock) so it can be read while other threads change it, see below
+ *  name      -> UTF-8 bytes in an off-heap arena, the account keeps offset + length in one long
+ *  name index-> open addressing hash table (linear probing), also off-heap:
+ *               one long per slot = String.hashCode() of the name (high 32 bits) | account + 1 (low 32 bits), 0 = empty
+ *
+ * About 24 bytes per account + the name bytes + 16 bytes of index (table at most half full).
+ * Lookups hash with String.hashCode(), which the String caches, and compare the stored bytes with the chars
+ * directly, so find() and balance() allocate nothing. The heap only holds a few ByteBuffer objects.
+ * (Java 17 has no MemorySegment yet, a direct ByteBuffer is limited to 2GB, so everything is split into 64MB chunks.)
+ *
+ * Accounts are numbered 0, 1, 2 ... in the order they were opened and are never removed.
+ * Threads: open() (and the ATM constructor) must run while no other thread uses the store. After that any number of
+ * threads may read and change balances at the same time:
+ *  - a writer makes the sequence odd (compare and set, so only one writer per account), writes, makes it even again
+ *  - a reader reads the sequence, the balance, the sequence again; same even number both times means nobody wrote
+ *    in between, so the value is not half old half new. Otherwise it just reads again.
+ * Readers never take a lock and never write anything, so they do not block writers or each other and do not
+ * bounce a cache line between cores the way a read lock (which counts its readers) does.
+ */
+public class AccountStore {
+    public static final int NAME_MAX = 0xFFFF;
+
+    private static AccountStore global;
+
+    private final Chunks balances;
+    private final Chunks nameRefs;
+    private final Chunks names;
+    private long namesUsed;
+    private Chunks index;
+    private long slots;
+    private int size;
+
+    public AccountStore(){
+        this(1024);
+    }
+
+    public AccountStore(int expectedAccounts){
+        int capacity = Math.max(16, expectedAccounts);
+        balances = new Chunks(capacity * 16L);
+        nameRefs = new Chunks(capacity * 8L);
+        names = new Chunks(capacity * 16L);
+        slots = Long.highestOneBit(capacity * 2L - 1) << 1; // power of two, at most half full
+        index = new Chunks(slots * 8);
+    }
+
+    //the store the ATM objects use when they are not given one
+    public static synchronized AccountStore global(){
+        if(global == null){
+            global = new AccountStore();
+        }
+        return global;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    //opens a new account, returns its number. A name can only be opened once.
+    public int open(String name, long minorUnits){
+        if(minorUnits < 0){
+            throw new IllegalArgumentException("negative balance: " + minorUnits);
+        }
+        if(find(name) >= 0){
+            throw new IllegalArgumentException("account already exists: " + name);
+        }
+        if(size == Integer.MAX_VALUE - 1){
+            throw new IllegalStateException("store is full");
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > NAME_MAX){
+            throw new IllegalArgumentException("name longer than " + NAME_MAX + " bytes");
+        }
+        int account = size;
+        balances.ensure((account + 1) * 16L);
+        nameRefs.ensure((account + 1) * 8L);
+        balances.putLong(account * 16L + 8, minorUnits);
+        nameRefs.putLong(account * 8L, writeName(bytes) << 16 | bytes.length);
+        size++;
+        if((size + 1) * 2L > slots){
+            rehash(slots * 2);
+        }
+        insert(name.hashCode(), account);
+        return account;
+    }
+
+    //account number for this name, or -1
+    public int find(String name){
+        int h = name.hashCode();
+        long mask = slots - 1;
+        for(long i = spread(h) & mask; ; i = (i + 1) & mask){
+            long slot = index.getLong(i * 8);
+            if(slot == 0){
+                return -1;
+            }
+            int account = (int) slot - 1;
+            if((int) (slot >>> 32) == h && nameEquals(account, name)){
+                return account;
+            }
+        }
+    }
+
+    public long balance(int account){
+        long at = seqAt(account);
+        for(int spins = 0; ; spins++){
+            long seq = balances.getLongAcquire(at);
+            if((seq & 1) == 0){
+                long bal = balances.getLong(at + 8);
+                VarHandle.acquireFence(); // the balance read may not move below the second sequence read
+                if(balances.getLong(at) == seq){
+                    return bal;
+                }
+            }
+            backOff(spins); // a writer is busy with this account, that normally takes a few ns
+        }
+    }
+
+    //balance of this name in minor units, or -1 if there is no such account
+    public long balance(String name){
+        int account = find(name);
+        return account < 0 ? -1 : balance(account);
+    }
+
+    public void deposit(int account, long minorUnits){
+        if(minorUnits < 0){
+            throw new IllegalArgumentException("negative amount: " + minorUnits);
+        }
+        long at = seqAt(account);
+        long seq = beginWrite(at);
+        try{
+            balances.putLong(at + 8, Math.addExact(balances.getLong(at + 8), minorUnits));
+        } finally {
+            balances.setLongRelease(at, seq + 2);
+        }
+    }
+
+    //false if the balance is too low, nothing changes then
+    public boolean withdraw(int account, long minorUnits){
+        if(minorUnits < 0){
+            throw new IllegalArgumentException("negative amount: " + minorUnits);
+        }
+        long at = seqAt(account);
+        long seq = beginWrite(at);
+        try{
+            long bal = balances.getLong(at + 8);
+            if(bal < minorUnits){
+                return false;
+            }
+            balances.putLong(at + 8, bal - minorUnits);
+            return true;
+        } finally {
+            balances.setLongRelease(at, seq + 2);
+        }
+    }
+
+    public void setBalance(int account, long minorUnits){
+        if(minorUnits < 0){
+            throw new IllegalArgumentException("negative balance: " + minorUnits);
+        }
+        long at = seqAt(account);
+        long seq = beginWrite(at);
+        balances.putLong(at + 8, minorUnits);
+        balances.setLongRelease(at, seq + 2);
+    }
+
+    //creates a String, for printing; lookups do not need it
+    public String name(int account){
+        long ref = nameRefs.getLong(offset(account));
+        byte[] bytes = new byte[(int) (ref & 0xFFFF)];
+        long at = ref >>> 16;
+        for(int i = 0; i < bytes.length; i++){
+            bytes[i] = names.get(at + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //the name bytes straight into the renderer, no String
+    public void appendName(int account, RecordRenderer out){
+        long ref = nameRefs.getLong(offset(account));
+        names.appendTo(out, ref >>> 16, (int) (ref & 0xFFFF));
+    }
+
+    //direct memory in use (allocated chunks), the part the GC never has to look at
+    public long offHeapBytes(){
+        return balances.capacity() + nameRefs.capacity() + names.capacity() + index.capacity();
+    }
+
+    //12345 minor units -> "123.45"
+    public static String formatMoney(long minorUnits){
+        long rest = Math.abs(minorUnits % 100);
+        return (minorUnits < 0 && minorUnits > -100 ? "-" : "") + minorUnits / 100 + (rest < 10 ? ".0" : ".") + rest;
+    }
+
+    public static void appendMoney(RecordRenderer out, long minorUnits){
+        if(minorUnits < 0 && minorUnits > -100){
+            out.append("-");
+        }
+        long rest = Math.abs(minorUnits % 100);
+        out.append(minorUnits / 100).append(rest < 10 ? ".0" : ".").append(rest);
+    }
+
+    private long offset(int account){
+        if(account < 0 || account >= size){
+            throw new IndexOutOfBoundsException("account " + account + " of " + size);
+        }
+        return account * 8L;
+    }
+
+    //sequence of the account, its balance is the next 8 bytes
+    private long seqAt(int account){
+        return offset(account) * 2;
+    }
+
+    //even -> odd marks "writing", returns the even value it replaced
+    private long beginWrite(long at){
+        for(int spins = 0; ; spins++){
+            long seq = balances.getLong(at);
+            if((seq & 1) == 0 && balances.compareAndSetLong(at, seq, seq + 1)){
+                return seq;
+            }
+            backOff(spins);
+        }
+    }
+
+    //if the writer got descheduled in the middle (more threads than cores), spinning would only burn its time slice
+    private static void backOff(int spins){
+        if(spins < 64){
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    //names never cross a chunk, so a name can be read from one ByteBuffer
+    private long writeName(byte[] bytes){
+        long at = namesUsed;
+        if((at & Chunks.MASK) + bytes.length > Chunks.SIZE){
+            at = (at | Chunks.MASK) + 1; // start of the next chunk
+        }
+        names.ensure(at + bytes.length);
+        for(int i = 0; i < bytes.length; i++){
+            names.put(at + i, bytes[i]);
+        }
+        namesUsed = at + bytes.length;
+        return at;
+    }
+
+    //compares the stored UTF-8 bytes with the chars of name, encoding on the fly
+    private boolean nameEquals(int account, String name){
+        long ref = nameRefs.getLong(account * 8L);
+        long at = ref >>> 16;
+        long end = at + (ref & 0xFFFF);
+        for(int i = 0; i < name.length(); i++){
+            int c = name.charAt(i);
+            if(c < 0x80){
+                if(at >= end || names.get(at++) != (byte) c){
+                    return false;
+                }
+                continue;
+            }
+            int n;
+            int cp = c;
+            if(c < 0x800){
+                n = 2;
+            } else if(Character.isHighSurrogate((char) c) && i + 1 < name.length()
+                    && Character.isLowSurrogate(name.charAt(i + 1))){
+                cp = Character.toCodePoint((char) c, name.charAt(++i));
+                n = 4;
+            } else if(Character.isSurrogate((char) c)){
+                cp = '?'; // what getBytes(UTF_8) writes for a lone surrogate
+                n = 1;
+            } else {
+                n = 3;
+            }
+            if(at + n > end){
+                return false;
+            }
+            if(n == 1){
+                if(names.get(at++) != (byte) cp){
+                    return false;
+                }
+                continue;
+            }
+            int lead = n == 2 ? 0xC0 | cp >> 6 : n == 3 ? 0xE0 | cp >> 12 : 0xF0 | cp >> 18;
+            if(names.get(at++) != (byte) lead){
+                return false;
+            }
+            for(int shift = (n - 2) * 6; shift >= 0; shift -= 6){
+                if(names.get(at++) != (byte) (0x80 | (cp >> shift & 0x3F))){
+                    return false;
+                }
+            }
+        }
+        return at == end;
+    }
+
+    private void insert(int h, int account){
+        long mask = slots - 1;
+        long i = spread(h) & mask;
+        while(index.getLong(i * 8) != 0){
+            i = (i + 1) & mask;
+        }
+        index.putLong(i * 8, (long) h << 32 | (account + 1L));
+    }
+
+    //the hash is kept in the slot, so growing never has to read a name again
+    private void rehash(long newSlots){
+        Chunks old = index;
+        long oldSlots = slots;
+        index = new Chunks(newSlots * 8);
+        slots = newSlots;
+        for(long i = 0; i < oldSlots; i++){
+            long slot = old.getLong(i * 8);
+            if(slot != 0){
+                insert((int) (slot >>> 32), (int) slot - 1);
+            }
+        }
+    }
+
+    private static long spread(int h){
+        long x = (h & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+        return x ^ (x >>> 29);
+    }
+
+    /*
+     * A long "array" of bytes off-heap. The first chunk starts small and doubles (copy) until it is 64MB,
+     * after that full 64MB chunks are added, so offset >>> SHIFT is always the chunk number.
+     */
+    static final class Chunks {
+        //atomic/ordered access to a long inside a ByteBuffer, needs the offset to be a multiple of 8
+        private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+        static final int SHIFT = 26;
+        static final int SIZE = 1 << SHIFT;
+        static final long MASK = SIZE - 1;
+
+        private ByteBuffer[] chunks;
+        private long capacity;
+
+        Chunks(long bytes){
+            chunks = new ByteBuffer[0];
+            if(bytes < SIZE){
+                chunks = new ByteBuffer[]{allocate((int) Math.max(64, bytes))};
+                capacity = chunks[0].capacity();
+            }
+            ensure(bytes);
+        }
+
+        long capacity(){
+            return capacity;
+        }
+
+        void ensure(long bytes){
+            while(bytes > capacity){
+                if(chunks.length == 1 && capacity < SIZE){
+                    long grown = Math.min(SIZE, Math.max(capacity * 2, Long.highestOneBit(bytes - 1) << 1));
+                    ByteBuffer bigger = allocate((int) grown);
+                    bigger.put(chunks[0].duplicate().clear());
+                    chunks[0] = bigger;
+                    capacity = grown;
+                } else {
+                    ByteBuffer[] more = new ByteBuffer[chunks.length + 1];
+                    System.arraycopy(chunks, 0, more, 0, chunks.length);
+                    more[chunks.length] = allocate(SIZE);
+                    chunks = more;
+                    capacity = (long) chunks.length * SIZE;
+                }
+            }
+        }
+
+        long getLong(long at){
+            return chunks[(int) (at >>> SHIFT)].getLong((int) (at & MASK));
+        }
+
+        void putLong(long at, long value){
+            chunks[(int) (at >>> SHIFT)].putLong((int) (at & MASK), value);
+        }
+
+        long getLongAcquire(long at){
+            return (long) LONGS.getAcquire(chunks[(int) (at >>> SHIFT)], (int) (at & MASK));
+        }
+
+        void setLongRelease(long at, long value){
+            LONGS.setRelease(chunks[(int) (at >>> SHIFT)], (int) (at & MASK), value);
+        }
+
+        boolean compareAndSetLong(long at, long expected, long value){
+            return LONGS.compareAndSet(chunks[(int) (at >>> SHIFT)], (int) (at & MASK), expected, value);
+        }
+
+        byte get(long at){
+            return chunks[(int) (at >>> SHIFT)].get((int) (at & MASK));
+        }
+
+        void put(long at, byte value){
+            chunks[(int) (at >>> SHIFT)].put((int) (at & MASK), value);
+        }
+
+        void appendTo(RecordRenderer out, long at, int length){
+            out.append(chunks[(int) (at >>> SHIFT)], (int) (at & MASK), length);
+        }
+
+        //alignedSlice: the VarHandle above only works on 8 byte aligned addresses
+        private static ByteBuffer allocate(int bytes){
+            return ByteBuffer.allocateDirect(bytes + 8).alignedSlice(8).limit(bytes).slice().order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import Advance_Multithreading.LatencyHistogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * AccountStore (off-heap) against the usual heap version, a HashMap<String, account object>:
+ * heap in use after loading, time to load, and lookup latency (p50/p99/p999) of balance(name) with a
+ * garbage making load running next to it, plus how many GCs happened and how long they took.
+ *
+ * args: [accounts]   (default 5M, needs about 1GB of heap for the HashMap side, e.g. -Xmx2g)
+ */
+public class AccountStoreBenchmark {
+    //what ATM used to be: one object per account
+    static final class HeapAccount {
+        final String name;
+        double balance;
+
+        HeapAccount(String name, double balance){
+            this.name = name;
+            this.balance = balance;
+        }
+    }
+
+    static volatile long sink;
+    static Object[] garbage = new Object[4096];
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int lookups = 2_000_000;
+
+        //the lookups use the same names for both sides, made up front so the loop allocates nothing
+        String[] queries = new String[1 << 16];
+        for(int i = 0; i < queries.length; i++){
+            queries[i] = "Account" + ThreadLocalRandom.current().nextInt(accounts);
+        }
+
+        long heap0 = usedHeap();
+        long t0 = System.nanoTime();
+        AccountStore store = new AccountStore(accounts);
+        for(int i = 0; i < accounts; i++){
+            store.open("Account" + i, 1000L * 100 + i);
+        }
+        long t1 = System.nanoTime();
+        long storeHeap = Math.max(0, usedHeap() - heap0); // can come out a bit negative, GC noise
+        for(int i = 0; i < accounts; i += 9973){
+            if(store.balance("Account" + i) != 1000L * 100 + i){
+                throw new IllegalStateException("wrong balance for Account" + i);
+            }
+        }
+        System.out.printf("store    load %5.2fs  heap %,6d KB  off-heap %,8d KB%n", (t1 - t0) / 1e9,
+                storeHeap / 1024, store.offHeapBytes() / 1024);
+        report("store", lookups, queries, name -> store.balance(name));
+
+        heap0 = usedHeap();
+        t0 = System.nanoTime();
+        Map<String, HeapAccount> map = new HashMap<>();
+        for(int i = 0; i < accounts; i++){
+            String name = "Account" + i;
+            map.put(name, new HeapAccount(name, 1000 + i / 100.0));
+        }
+        t1 = System.nanoTime();
+        long mapHeap = usedHeap() - heap0;
+        System.out.printf("hashmap  load %5.2fs  heap %,6d KB%n", (t1 - t0) / 1e9, mapHeap / 1024);
+        report("hashmap", lookups, queries, name -> (long) (map.get(name).balance * 100));
+        sink += map.size() + store.size();
+    }
+
+    interface Lookup {
+        long balance(String name);
+    }
+
+    static void report(String label, int lookups, String[] queries, Lookup lookup){
+        for(int round = 0; round < 2; round++){ // first round is warm up
+            LatencyHistogram ns = new LatencyHistogram();
+            long gcCount = gcCount();
+            long gcMillis = gcMillis();
+            long sum = 0;
+            for(int i = 0; i < lookups; i++){
+                //some short lived garbage like a real request would make, so the GC has to run now and then
+                garbage[i & (garbage.length - 1)] = new long[16];
+                long start = System.nanoTime();
+                sum += lookup.balance(queries[i & (queries.length - 1)]);
+                ns.record(System.nanoTime() - start);
+            }
+            sink += sum;
+            if(round == 1){
+                System.out.printf("%-8s lookup p50 %5dns p99 %6dns p999 %7dns max %9dns | %d GCs, %d ms in GC%n",
+                        label, ns.percentile(50), ns.percentile(99), ns.percentile(99.9), ns.max(),
+                        gcCount() - gcCount, gcMillis() - gcMillis);
+            }
+        }
+    }
+
+    static long usedHeap(){
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    static long gcCount(){
+        long n = 0;
+        for(GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans()){
+            n += gc.getCollectionCount();
+        }
+        return n;
+    }
+
+    static long gcMillis(){
+        long n = 0;
+        for(GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans()){
+            n += gc.getCollectionTime();
+        }
+        return n;
+    }
+}
@@ -1,38 +1,315 @@
 package Advance_Multithreading;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class BankAccount {
-    private int bal = 100000;
+    //shared by all accounts, looked up once so withdraw only does LongAdder.add(), see CounterRegistry
+    private static final LongAdder ACQUIRED = CounterRegistry.global().counter("bank_lock_acquired_total");
+    private static final LongAdder REJECTED = CounterRegistry.global().counter("bank_lock_rejected_total");
+    private static final LongAdder INSUFFICIENT = CounterRegistry.global().counter("bank_withdraw_insufficient_total");
+    private static final LongAdder WITHDRAWN = CounterRegistry.global().counter("bank_withdraw_completed_total");
+    private static final LongAdder WAIT_NANOS = CounterRegistry.global().counter("bank_lock_wait_nanos_total"); // lock() only, not tryLock()
+    private static final LongAdder HOLD_NANOS = CounterRegistry.global().counter("bank_lock_hold_nanos_total");
+    private static final LongAdder TRANSFERRED = CounterRegistry.global().counter("bank_transfer_completed_total");
+    private static final LongAdder TRANSFER_REFUSED = CounterRegistry.global().counter("bank_transfer_insufficient_total");
+
+    //every account gets a unique number, transfer() always locks the smaller one first (see there)
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private final long id = NEXT_ID.getAndIncrement();
+
+    private int bal;
+    //the sleep that makes the lock demo visible, and the println lines; the benchmark turns both off
+    private final long processingMillis;
+    private final boolean verbose;
 
     private final ReentrantLock rl = new ReentrantLock();
 
+    //null means balance lives only in memory (like before), otherwise every withdraw is written to the journal first.
+    private final Journal journal;
+    private final int accountNo;
+
+    public BankAccount(){
+        this(100000, 2000, true);
+    }
+
+    public BankAccount(int openingBalance, long processingMillis, boolean verbose){
+        this.bal = openingBalance;
+        this.processingMillis = processingMillis;
+        this.verbose = verbose;
+        this.journal = null;
+        this.accountNo = 0;
+    }
+
+    //balance = openingBalance + everything the journal has for accountNo, so it is the same as before the crash/restart.
+    //no demo sleep on this path: withdraw() waits for the lock and for the disk instead.
+    public BankAccount(Journal journal, int accountNo, int openingBalance, boolean verbose) throws IOException {
+        this.processingMillis = 0;
+        this.verbose = verbose;
+        this.journal = journal;
+        this.accountNo = accountNo;
+        this.bal = Math.toIntExact(openingBalance + journal.claim(accountNo));
+    }
+
     public void withdraw(String ThreadName, int amount){
-        System.out.println(ThreadName+": is trying to withdraw "+amount);
+        if(verbose){
+            System.out.println(ThreadName+": is trying to withdraw "+amount);
+        }
 //        rl.lock(); this is lock it will stop multithreading and will execute thread one by one
         //rl.tryLock() -> This is a method that used to check if lock is free or not if it is free it will
         //take a lock or if no then it will do some other task;
-        if(rl.tryLock()){
+        //Note: do not call rl.lock() again after tryLock() succeeds, the hold count becomes 2 but unlock() runs once,
+        //so the lock is never released and every later thread goes to the else branch. (see Ledger for a lock free version)
+        //event objects only when the Flight Recorder runs, see BankAccountEvents.active()
+        boolean jfr = BankAccountEvents.active();
+        boolean locked;
+        long acquiredAt;
+        if(journal != null){
+            //a journaled withdraw is a real transaction, it waits for its turn instead of giving up.
+            //only this wait is timed, tryLock() below never waits so there is nothing to measure there
+            BankAccountEvents.LockAcquire acquire = null;
+            if(jfr){
+                acquire = new BankAccountEvents.LockAcquire();
+                acquire.begin();
+            }
+            long start = System.nanoTime();
             rl.lock();
+            acquiredAt = System.nanoTime();
+            WAIT_NANOS.add(acquiredAt - start);
+            if(jfr){
+                acquire.end();
+                if(acquire.shouldCommit()){
+                    acquire.account = accountNo;
+                    acquire.commit();
+                }
+            }
+            locked = true;
+        } else {
+            locked = rl.tryLock();
+            acquiredAt = System.nanoTime();
+        }
+        if(locked){
+            ACQUIRED.increment();
+            BankAccountEvents.LockHold hold = null;
+            if(jfr){
+                hold = new BankAccountEvents.LockHold();
+                hold.begin();
+            }
+            long seq = 0;
+            int remaining = 0;
+            boolean done = false;
             try{
-                System.out.println(ThreadName+" acquired Lock");
+                if(verbose){
+                    System.out.println(ThreadName+" acquired Lock");
+                }
                 if(bal >= amount){
-                    Thread.sleep(2000);
+                    if(processingMillis > 0){
+                        Thread.sleep(processingMillis);
+                    }
+                    if(journal != null){
+                        //only queued here, fsync happens in a batch. Before the debit: if append throws, nothing changed
+                        seq = journal.append(accountNo, -amount);
+                    }
                     bal = bal - amount;
-                    System.out.println("withdraw: "+amount+ "remaining: "+ bal);
+                    remaining = bal;
+                    done = true;
                 }
                 else {
-                    System.out.println("Insufficient Balance");
+                    insufficient(amount, bal);
                 }
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
             finally {
                 rl.unlock();
+                HOLD_NANOS.add(System.nanoTime() - acquiredAt);
+                if(jfr){
+                    hold.end();
+                    if(hold.shouldCommit()){
+                        hold.account = accountNo;
+                        hold.amount = amount;
+                        hold.commit();
+                    }
+                }
+            }
+            //wait for the disk after unlock, so other threads can add their withdraw to the same group commit
+            if(done){
+                if(journal != null){
+                    try{
+                        journal.awaitDurable(seq);
+                    } catch (UncheckedIOException e) {
+                        refund(amount); // the record never reached the disk, so the withdraw did not happen
+                        throw e;
+                    }
+                }
+                WITHDRAWN.increment();
+                if(verbose){
+                    System.out.println("withdraw: "+amount+ "remaining: "+ remaining);
+                }
             }
         }
         else{
-            System.out.println(ThreadName+ " is saying lock is not free now let's do some other task");
+            REJECTED.increment();
+            if(jfr){
+                BankAccountEvents.LockRejected rejected = new BankAccountEvents.LockRejected();
+                if(rejected.shouldCommit()){
+                    rejected.account = accountNo;
+                    rejected.amount = amount;
+                    rejected.caller = ThreadName;
+                    rejected.commit();
+                }
+            }
+            if(verbose){
+                System.out.println(ThreadName+ " is saying lock is not free now let's do some other task");
+            }
+        }
+    }
+
+    private void refund(int amount){
+        rl.lock();
+        try{
+            bal += amount;
+        } finally {
+            rl.unlock();
+        }
+    }
+
+    private void insufficient(int amount, int balance){
+        INSUFFICIENT.increment();
+        if(BankAccountEvents.active()){
+            BankAccountEvents.InsufficientBalance event = new BankAccountEvents.InsufficientBalance();
+            if(event.shouldCommit()){
+                event.account = accountNo;
+                event.amount = amount;
+                event.balance = balance;
+                event.commit();
+            }
+        }
+        if(verbose){
+            System.out.println("Insufficient Balance");
+        }
+    }
+
+    /*
+     * Moves money from one account to another, both changes happen together or not at all.
+     * Two locks are needed, and that is how deadlock happens: thread A transfers x->y and holds x waiting for y,
+     * thread B transfers y->x and holds y waiting for x, both wait forever.
+     * Fix: every thread takes the locks in the same global order (smaller id first), then no cycle
+     * of waiting threads can be built. Unlike withdraw() this waits for the locks (lock() not tryLock()).
+     * Returns false when "from" does not have enough money.
+     */
+    public static boolean transfer(BankAccount from, BankAccount to, int amount){
+        if(from == to){
+            throw new IllegalArgumentException("transfer to the same account");
+        }
+        if(amount <= 0){
+            throw new IllegalArgumentException("amount must be positive: " + amount);
+        }
+        BankAccount first = from.id < to.id ? from : to;
+        BankAccount second = first == from ? to : from;
+        long fromSeq = 0;
+        long toSeq = 0;
+        long start = System.nanoTime();
+        first.rl.lock();
+        try{
+            second.rl.lock();
+            WAIT_NANOS.add(System.nanoTime() - start);
+            try{
+                if(from.bal < amount){
+                    TRANSFER_REFUSED.increment();
+                    return false;
+                }
+                //check the other side too, an int balance must not wrap around
+                int credited = Math.addExact(to.bal, amount);
+                //records first, like withdraw: if an append throws, no balance has changed yet
+                if(from.journal != null){
+                    fromSeq = from.journal.append(from.accountNo, -amount);
+                }
+                if(to.journal != null){
+                    try{
+                        toSeq = to.journal.append(to.accountNo, amount);
+                    } catch (RuntimeException e) {
+                        //the debit is queued already and cannot be taken out, a second record cancels it on replay
+                        if(from.journal != null){
+                            try{
+                                from.journal.append(from.accountNo, amount);
+                            } catch (RuntimeException again) {
+                                e.addSuppressed(again); // that journal failed too, so the debit never gets durable either
+                            }
+                        }
+                        throw e;
+                    }
+                }
+                from.bal -= amount;
+                to.bal = credited;
+            } finally {
+                second.rl.unlock();
+            }
+        } finally {
+            first.rl.unlock();
+        }
+        //like withdraw, wait for the disk after the locks are free (two journals are two separate commits)
+        try{
+            if(from.journal != null){
+                from.journal.awaitDurable(fromSeq);
+            }
+            if(to.journal != null){
+                to.journal.awaitDurable(toSeq);
+            }
+        } catch (UncheckedIOException e) {
+            //undo in memory. With one journal a failure is final, so neither record is on disk; with two journals
+            //one side may already be durable and replay will show half a transfer.
+            //"to" can go below zero here if it spent the money in the meantime (only possible when its own
+            //journal still works); the negative balance is then what it owes, it is not hidden
+            first.rl.lock();
+            try{
+                second.rl.lock();
+                try{
+                    from.bal += amount;
+                    to.bal -= amount;
+                } finally {
+                    second.rl.unlock();
+                }
+            } finally {
+                first.rl.unlock();
+            }
+            throw e;
+        }
+        TRANSFERRED.increment();
+        return true;
+    }
+
+    public int balance(){
+        rl.lock();
+        try{
+            return bal;
+        } finally {
+            rl.unlock();
+        }
+    }
+
+    //sum of all balances as one consistent snapshot: locks every account in the same id order as transfer()
+    public static long total(BankAccount... accounts){
+        BankAccount[] ordered = accounts.clone();
+        Arrays.sort(ordered, Comparator.comparingLong(a -> a.id));
+        int locked = 0;
+        try{
+            long sum = 0;
+            for(BankAccount a: ordered){
+                a.rl.lock();
+                locked++;
+                sum += a.bal;
+            }
+            return sum;
+        } finally {
+            for(int i = locked - 1; i >= 0; i--){
+                ordered[i].rl.unlock();
+            }
         }
     }
 }
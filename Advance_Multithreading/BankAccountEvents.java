@@ -0,0 +1,137 @@
+package Advance_Multithreading;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/*
+ * Custom JDK Flight Recorder events for BankAccount.withdraw.
+ * LockAcquire is the time a journaled withdraw waited in lock(). The in-memory withdraw uses tryLock(),
+ * which never waits: it either gets the lock (LockHold) or gives up (LockRejected), so it has no acquire event.
+ * They cost almost nothing when no recording is running, so they can stay in production code.
+ *   java -XX:StartFlightRecording=filename=bank.jfr,settings=profile ...
+ *   jfr print --events Advance_Multithreading.LockRejected bank.jfr
+ * Stack traces are off, taking one on every withdraw would be the most expensive part.
+ *
+ * Under contention tryLock() can fail millions of times a second, one event per failure costs more than
+ * the withdraw itself. So by default a recording gets:
+ *  - LockAcquire / LockHold only when longer than 20us (the interesting ones)
+ *  - InsufficientBalance every time (rare)
+ *  - LockStats once a second with the totals from the counters
+ * and LockRejected (one event per failed tryLock) has to be switched on by hand when debugging.
+ *
+ * Startup: the first event object makes the JVM start up the whole Flight Recorder, about 0.4s. A short program
+ * that never records should not pay that, so BankAccount asks active() first and only creates events when
+ * a recording was started (-XX:StartFlightRecording, jcmd JFR.start or new Recording()).
+ */
+public final class BankAccountEvents {
+    private BankAccountEvents(){
+    }
+
+    @Name("Advance_Multithreading.LockAcquire")
+    @Label("Account Lock Acquire")
+    @Description("Time a journaled withdraw waited in lock() for the account lock (duration of the event)")
+    @Category({"Java OOPS Notes", "Bank Account"})
+    @StackTrace(false)
+    @Threshold("20 us")
+    public static final class LockAcquire extends Event {
+        @Label("Account")
+        public int account;
+    }
+
+    @Name("Advance_Multithreading.LockHold")
+    @Label("Account Lock Hold")
+    @Description("Time the account lock was held by a withdraw (duration of the event)")
+    @Category({"Java OOPS Notes", "Bank Account"})
+    @StackTrace(false)
+    @Threshold("20 us")
+    public static final class LockHold extends Event {
+        @Label("Account")
+        public int account;
+        @Label("Amount")
+        public int amount;
+    }
+
+    @Name("Advance_Multithreading.LockRejected")
+    @Label("Account Lock Rejected")
+    @Description("tryLock() found the lock busy and the withdraw was skipped")
+    @Category({"Java OOPS Notes", "Bank Account"})
+    @StackTrace(false)
+    @Enabled(false)
+    public static final class LockRejected extends Event {
+        @Label("Account")
+        public int account;
+        @Label("Amount")
+        public int amount;
+        @Label("Caller")
+        public String caller;
+    }
+
+    @Name("Advance_Multithreading.InsufficientBalance")
+    @Label("Insufficient Balance")
+    @Description("Withdraw refused because the balance was too low")
+    @Category({"Java OOPS Notes", "Bank Account"})
+    @StackTrace(false)
+    public static final class InsufficientBalance extends Event {
+        @Label("Account")
+        public int account;
+        @Label("Amount")
+        public int amount;
+        @Label("Balance")
+        public int balance;
+    }
+
+    @Name("Advance_Multithreading.LockStats")
+    @Label("Account Lock Statistics")
+    @Description("Totals since start, from the bank_* counters in CounterRegistry")
+    @Category({"Java OOPS Notes", "Bank Account"})
+    @StackTrace(false)
+    @Period("1 s")
+    public static final class LockStats extends Event {
+        @Label("Acquired")
+        public long acquired;
+        @Label("Rejected")
+        public long rejected;
+        @Label("Insufficient Balance")
+        public long insufficient;
+        @Label("Lock Wait")
+        @Description("Time spent waiting in lock(), by journaled withdraws and transfers")
+        @Timespan(Timespan.NANOSECONDS)
+        public long waitNanos;
+        @Label("Lock Hold")
+        @Timespan(Timespan.NANOSECONDS)
+        public long holdNanos;
+    }
+
+    //cheap check; the first time it is true the holder below registers LockStats
+    static boolean active(){
+        return FlightRecorder.isInitialized() && Periodic.REGISTERED;
+    }
+
+    //lazy holder: the JVM runs this static initializer once, the first time active() gets past isInitialized()
+    private static final class Periodic {
+        static final boolean REGISTERED = registerPeriodic(CounterRegistry.global());
+    }
+
+    //JFR asks for a LockStats event every period while a recording runs
+    private static boolean registerPeriodic(CounterRegistry counters){
+        FlightRecorder.addPeriodicEvent(LockStats.class, () -> {
+            LockStats stats = new LockStats();
+            stats.acquired = counters.get("bank_lock_acquired_total");
+            stats.rejected = counters.get("bank_lock_rejected_total");
+            stats.insufficient = counters.get("bank_withdraw_insufficient_total");
+            stats.waitNanos = counters.get("bank_lock_wait_nanos_total");
+            stats.holdNanos = counters.get("bank_lock_hold_nanos_total");
+            stats.commit();
+        });
+        return true;
+    }
+}
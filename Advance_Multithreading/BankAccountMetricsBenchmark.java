@@ -0,0 +1,119 @@
+package Advance_Multithreading;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * How much do the JFR events and counters in BankAccount.withdraw cost?
+ * Runs the same withdraw loop with no recording and with a recording that has our events on,
+ * a few rounds each turn by turn (so JIT and noise hit both sides), and compares the throughput.
+ * Target: less than 1% slower with the events on.
+ *
+ * args: [threads] [secondsPerRound] [rounds] [thresholdMicros] [all]
+ * thresholdMicros is the JFR threshold for the lock wait/hold events (0 = record every single one). The account here
+ * is not journaled, so withdraw uses tryLock() and only LockHold shows up; LockAcquire is for lock() waits.
+ * "all" also turns on LockRejected, one event per failed tryLock (see BankAccountEvents why it is off).
+ */
+public class BankAccountMetricsBenchmark {
+    static boolean all;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long thresholdMicros = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        all = args.length > 4 && args[4].equals("all");
+
+        //warm up both paths so the first round is not paying for the JIT
+        run(threads, 1, null);
+        run(threads, 1, thresholdMicros);
+
+        double off = 0;
+        double on = 0;
+        for(int r = 0; r < rounds; r++){
+            double a = run(threads, seconds, null);
+            double b = run(threads, seconds, thresholdMicros);
+            System.out.printf("round %d  no recording %,12.0f ops/s   recording %,12.0f ops/s%n", r + 1, a, b);
+            off += a;
+            on += b;
+        }
+        double overhead = (off - on) / off * 100;
+        System.out.printf("overhead with events on: %.2f%% (target < 1%%)%n", overhead);
+
+        //one more short recording, dumped to a file to show what ends up in it
+        Path file = Files.createTempFile("bank", ".jfr");
+        Recording recording = start(thresholdMicros);
+        run(threads, 1, null);
+        recording.stop();
+        recording.dump(file);
+        recording.close();
+        Map<String, Integer> counts = new TreeMap<>();
+        for(RecordedEvent e: RecordingFile.readAllEvents(file)){
+            counts.merge(e.getEventType().getName(), 1, Integer::sum);
+        }
+        Files.delete(file);
+        System.out.println("events in a 1s recording: " + counts);
+
+        System.out.println("counters:");
+        System.out.print(CounterRegistry.global().scrape());
+    }
+
+    //null threshold means no recording
+    static double run(int threads, int seconds, Long thresholdMicros) throws InterruptedException {
+        Recording recording = thresholdMicros == null ? null : start(thresholdMicros);
+        //balance is big enough that it never runs out in a round, every 64th withdraw is too big on purpose
+        BankAccount account = new BankAccount(Integer.MAX_VALUE - 1, 0, false);
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder ops = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++){
+            String name = "worker-" + t;
+            workers[t] = new Thread(() -> {
+                long n = 0;
+                while(!stop.get()){
+                    account.withdraw(name, (n & 63) == 0 ? Integer.MAX_VALUE : 1);
+                    n++;
+                }
+                ops.add(n);
+            });
+        }
+        long start = System.nanoTime();
+        for(Thread w: workers){
+            w.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for(Thread w: workers){
+            w.join();
+        }
+        double perSecond = ops.sum() / ((System.nanoTime() - start) / 1e9);
+        if(recording != null){
+            recording.close();
+        }
+        return perSecond;
+    }
+
+    static Recording start(long thresholdMicros){
+        Recording recording = new Recording();
+        Duration threshold = Duration.ofNanos(thresholdMicros * 1000);
+        recording.enable(BankAccountEvents.LockAcquire.class).withoutStackTrace().withThreshold(threshold);
+        recording.enable(BankAccountEvents.LockHold.class).withoutStackTrace().withThreshold(threshold);
+        recording.enable(BankAccountEvents.InsufficientBalance.class).withoutStackTrace();
+        recording.enable(BankAccountEvents.LockStats.class).withPeriod(Duration.ofSeconds(1));
+        if(all){
+            recording.enable(BankAccountEvents.LockRejected.class).withoutStackTrace();
+        }
+        recording.start();
+        return recording;
+    }
+}
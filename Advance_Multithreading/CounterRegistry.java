@@ -0,0 +1,88 @@
+package Advance_Multithreading;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Named counters that can be read from outside ("scraped") while the program runs.
+ * The hot path never touches the map: callers look a counter up once, keep the LongAdder in a field
+ * and only call increment()/add(). LongAdder spreads updates over cells, so many threads counting
+ * at the same time do not fight over one cache line like an AtomicLong would.
+ *
+ * scrape() gives one "name value" line per counter (Prometheus text format), serve(port) puts it on
+ * http://localhost:port/metrics
+ */
+public final class CounterRegistry {
+    private static final CounterRegistry GLOBAL = new CounterRegistry();
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public static CounterRegistry global(){
+        return GLOBAL;
+    }
+
+    public LongAdder counter(String name){
+        LongAdder counter = counters.get(name);
+        if(counter != null){
+            return counter;
+        }
+        if(!validName(name)){
+            throw new IllegalArgumentException("bad counter name: " + name);
+        }
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    //[a-zA-Z_:][a-zA-Z0-9_:]* without a regex, compiling a Pattern costs more than the rest of the class at startup
+    private static boolean validName(String name){
+        if(name.isEmpty()){
+            return false;
+        }
+        for(int i = 0; i < name.length(); i++){
+            char c = name.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':';
+            if(!letter && (i == 0 || c < '0' || c > '9')){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //0 for a counter nobody created yet
+    public long get(String name){
+        LongAdder c = counters.get(name);
+        return c == null ? 0 : c.sum();
+    }
+
+    //sums are read one by one, so two counters may be a few updates apart from each other
+    public String scrape(){
+        Map<String, LongAdder> sorted = new TreeMap<>(counters);
+        StringBuilder sb = new StringBuilder(sorted.size() * 48);
+        for(Map.Entry<String, LongAdder> e: sorted.entrySet()){
+            sb.append(e.getKey()).append(' ').append(e.getValue().sum()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    //small http endpoint for a scraper, stop it with server.stop(0)
+    public HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody()){
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
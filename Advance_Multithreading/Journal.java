@@ -0,0 +1,263 @@
+package Advance_Multithreading;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/*
+ * Append only transaction log (write-ahead journal) with group commit.
+ *
+ * Every record is: account(int) + delta(long) + crc32(int) = 16 bytes.
+ * Callers do append() and get a sequence number back, then awaitDurable(seq) to wait until it is on disk.
+ * One writer thread takes ALL the records that are waiting, writes them with one write() and one force() (fsync),
+ * then wakes every caller of that batch. While one fsync is running the next batch is already filling up,
+ * so a caller waits at most for two fsyncs and many concurrent withdrawals share one fsync.
+ *
+ * A crash can leave a half written record at the end of the file, the crc catches it and the file is cut back
+ * to the last good record when it is opened again.
+ */
+public class Journal implements AutoCloseable {
+    static final int RECORD_SIZE = 16;
+
+    //called once per record by replay()
+    public interface Replay {
+        void apply(int account, long delta);
+    }
+
+    private final FileChannel channel;
+    private final int maxBatch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread writer;
+
+    //records appended but not written yet, filled by callers and swapped out by the writer thread
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long appendedSeq;
+    private long durableSeq;
+    private long durableLength;
+    //only touched by the writer thread
+    private long writePosition;
+    private IOException failure;
+    private boolean closed;
+    //sum of deltas per account as found on disk, built by claim() with one replay, see there
+    private Map<Integer, Long> replayed;
+    private final Set<Integer> claimed = new HashSet<>();
+
+    public Journal(Path file) throws IOException {
+        this(file, 4096);
+    }
+
+    public Journal(Path file, int maxBatch) throws IOException {
+        if(maxBatch <= 0){
+            throw new IllegalArgumentException("maxBatch must be positive: "+maxBatch);
+        }
+        this.maxBatch = maxBatch;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writePosition = validLength();
+        this.durableLength = writePosition;
+        channel.truncate(writePosition); // drop a torn record left by a crash
+        this.pending = ByteBuffer.allocateDirect(maxBatch * RECORD_SIZE);
+        this.spare = ByteBuffer.allocateDirect(maxBatch * RECORD_SIZE);
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //reads every committed record from the start of the file, used on startup to rebuild balances.
+    public void replay(Replay handler) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * 1024);
+        long end = durableLength();
+        long pos = 0;
+        while(pos < end){
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), end - pos));
+            while(buf.hasRemaining()){
+                int n = channel.read(buf, pos + buf.position());
+                if(n < 0){
+                    throw new IOException("journal shrank while replaying");
+                }
+            }
+            buf.flip();
+            while(buf.remaining() >= RECORD_SIZE){
+                handler.apply(buf.getInt(), buf.getLong());
+                buf.getInt(); // crc, already checked when the file was opened
+            }
+            pos += buf.limit();
+        }
+    }
+
+    //what the journal holds for one account, for BankAccount on startup. The file is replayed once, the first time
+    //any account asks, not once per account. Every account can be claimed only once: after that its owner has
+    //the balance in memory and the replayed sum is out of date.
+    public synchronized long claim(int account) throws IOException {
+        if(replayed == null){
+            Map<Integer, Long> sums = new HashMap<>();
+            replay((a, delta)-> sums.merge(a, delta, Long::sum));
+            replayed = sums;
+        }
+        if(!claimed.add(account)){
+            throw new IllegalStateException("account "+account+" is already open on this journal");
+        }
+        return replayed.getOrDefault(account, 0L);
+    }
+
+    //adds a record to the next batch and returns its sequence number, does not wait for the disk.
+    //blocks only if maxBatch records are already waiting for the writer.
+    public long append(int account, long delta){
+        lock.lock();
+        try{
+            while(!pending.hasRemaining() && failure == null && !closed){
+                flushed.awaitUninterruptibly();
+            }
+            checkOpen();
+            int start = pending.position();
+            pending.putInt(account).putLong(delta);
+            pending.putInt(crc(pending, start));
+            hasWork.signal();
+            return ++appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //waits until the record with this sequence number (and all before it) has been fsynced.
+    public void awaitDurable(long seq){
+        lock.lock();
+        try{
+            while(durableSeq < seq && failure == null){
+                flushed.awaitUninterruptibly();
+            }
+            if(durableSeq < seq){
+                throw new UncheckedIOException("journal write failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void commit(int account, long delta){
+        awaitDurable(append(account, delta));
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try{
+            closed = true;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        try{
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void writeLoop(){
+        while(true){
+            ByteBuffer batch;
+            long batchSeq;
+            lock.lock();
+            try{
+                while(pending.position() == 0 && !closed){
+                    hasWork.awaitUninterruptibly();
+                }
+                if(pending.position() == 0){
+                    return; // closed and nothing left to write
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSeq = appendedSeq;
+                flushed.signalAll(); // callers blocked on a full buffer can go on with the empty one
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            batch.flip();
+            try{
+                while(batch.hasRemaining()){
+                    writePosition += channel.write(batch, writePosition);
+                }
+                channel.force(false); // one fsync for the whole batch
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+
+            lock.lock();
+            try{
+                if(error != null){
+                    failure = error;
+                } else {
+                    durableSeq = batchSeq;
+                    durableLength = writePosition;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if(error != null){
+                return;
+            }
+        }
+    }
+
+    private long durableLength(){
+        lock.lock();
+        try{
+            return durableLength;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //length of the file up to the last record with a correct crc.
+    private long validLength() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+        long size = channel.size();
+        long pos = 0;
+        while(pos + RECORD_SIZE <= size){
+            buf.clear();
+            while(buf.hasRemaining() && channel.read(buf, pos + buf.position()) >= 0){
+                // keep reading until the record is complete
+            }
+            if(buf.getInt(RECORD_SIZE - 4) != crc(buf, 0)){
+                break;
+            }
+            pos += RECORD_SIZE;
+        }
+        return pos;
+    }
+
+    private static int crc(ByteBuffer buf, int start){
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().limit(start + RECORD_SIZE - 4).position(start));
+        return (int) crc.getValue();
+    }
+
+    private void checkOpen(){
+        if(failure != null){
+            throw new UncheckedIOException("journal write failed", failure);
+        }
+        if(closed){
+            throw new IllegalStateException("journal is closed");
+        }
+    }
+}
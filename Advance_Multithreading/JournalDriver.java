@@ -0,0 +1,58 @@
+package Advance_Multithreading;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * Durable withdraws through BankAccount: every withdraw appends to the Journal under the account lock,
+ * and the thread waits for the fsync after the lock is free.
+ * Many threads -> many records per fsync, so tx/sec grows with the thread count even on one disk.
+ * At the end the journal is opened again and every account is rebuilt from it, the rebuilt total must match.
+ */
+public class JournalDriver {
+    private static final int ACCOUNTS = 1000;
+    private static final int OPENING = 1_000_000;
+    private static final int TX_PER_THREAD = 2000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path file = args.length > 0 ? Path.of(args[0]) : Files.createTempFile("bank", ".journal");
+        Files.deleteIfExists(file);
+        for(int threads = 1; threads <= 64; threads *= 4){
+            BankAccount[] accounts = new BankAccount[ACCOUNTS];
+            try(Journal journal = new Journal(file)){
+                for(int i = 0; i < ACCOUNTS; i++){
+                    accounts[i] = new BankAccount(journal, i, OPENING, false);
+                }
+                Thread[] workers = new Thread[threads];
+                for(int i = 0; i < threads; i++){
+                    int first = i;
+                    workers[i] = new Thread(()->{
+                        String name = Thread.currentThread().getName();
+                        for(int tx = 0; tx < TX_PER_THREAD; tx++){
+                            accounts[(first + tx * 31) % ACCOUNTS].withdraw(name, 1);
+                        }
+                    });
+                }
+                long start = System.nanoTime();
+                for(Thread t: workers){
+                    t.start();
+                }
+                for(Thread t: workers){
+                    t.join();
+                }
+                long nanos = System.nanoTime() - start;
+                System.out.printf("threads=%d durable tx/sec=%,d%n", threads, (long) threads * TX_PER_THREAD * 1_000_000_000L / nanos);
+            }
+
+            long rebuilt = 0;
+            try(Journal journal = new Journal(file)){
+                for(int i = 0; i < ACCOUNTS; i++){
+                    rebuilt += new BankAccount(journal, i, OPENING, false).balance();
+                }
+            }
+            System.out.println("replayed total "+rebuilt+" in memory total "+BankAccount.total(accounts));
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package Advance_Multithreading;
+
+import java.util.Arrays;
+
+/*
+ * Small latency histogram in the style of HdrHistogram (log-linear buckets, about 1% error, fixed memory).
+ * Values below 128 get their own bucket, above that every power of two is split in 64 equal buckets.
+ * Not thread safe: give every thread its own histogram and merge() them at the end.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 64;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + 57 * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long max;
+    private double sum;
+
+    public void record(long value){
+        if(value < 0){
+            value = 0;
+        }
+        counts[index(value)]++;
+        total++;
+        sum += value;
+        if(value > max){
+            max = value;
+        }
+    }
+
+    //coordinated omission correction: if one operation took much longer than the expected interval between
+    //operations, the operations that should have started in the meantime are recorded too, with the time they would have waited.
+    public void recordCorrected(long value, long expectedInterval){
+        record(value);
+        if(expectedInterval <= 0){
+            return;
+        }
+        for(long missed = value - expectedInterval; missed >= expectedInterval; missed -= expectedInterval){
+            record(missed);
+        }
+    }
+
+    public void merge(LatencyHistogram other){
+        for(int i = 0; i < BUCKETS; i++){
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset(){
+        Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long count(){
+        return total;
+    }
+
+    public long max(){
+        return max;
+    }
+
+    public double mean(){
+        return total == 0 ? 0 : sum / total;
+    }
+
+    //percentile between 0 and 100, returns the highest value that falls in the same bucket.
+    public long percentile(double percentile){
+        if(total == 0){
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts[i];
+            if(seen >= wanted){
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value){
+        if(value < LINEAR){
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6; // value >>> shift is now between 64 and 127
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(int index){
+        if(index < LINEAR){
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,92 @@
+package Advance_Multithreading;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Many accounts in one object, no lock at all.
+ * Every withdraw/deposit is a compare-and-set (CAS) loop on the balance of that one account,
+ * so a thread never parks: if another thread changed the balance first, it just reads the new value and tries again.
+ * Threads working on different accounts never touch the same memory, so throughput grows with the number of cores.
+ */
+public class Ledger {
+    //8 longs = 64 bytes = one cache line. Every balance gets its own line so two cores updating
+    //neighbour accounts do not keep stealing the same cache line from each other (false sharing).
+    private static final int PAD = 8;
+
+    private final AtomicLongArray balances;
+    private final int accounts;
+
+    public Ledger(int accounts, long openingBalance){
+        if(accounts <= 0){
+            throw new IllegalArgumentException("accounts must be positive: "+accounts);
+        }
+        if(openingBalance < 0){
+            throw new IllegalArgumentException("opening balance cannot be negative: "+openingBalance);
+        }
+        this.accounts = accounts;
+        this.balances = new AtomicLongArray(accounts * PAD);
+        for(int i = 0; i < accounts; i++){
+            balances.set(i * PAD, openingBalance);
+        }
+    }
+
+    public int size(){
+        return accounts;
+    }
+
+    public long balance(int account){
+        return balances.get(slot(account));
+    }
+
+    //returns false when balance is not enough, balance is never allowed to go below zero.
+    public boolean withdraw(int account, long amount){
+        checkAmount(amount);
+        int slot = slot(account);
+        long current = balances.get(slot);
+        while(current >= amount){
+            long seen = balances.compareAndExchange(slot, current, current - amount);
+            if(seen == current){
+                return true;
+            }
+            current = seen; // somebody else won the race, retry with the value they wrote
+        }
+        return false;
+    }
+
+    //returns the new balance.
+    public long deposit(int account, long amount){
+        checkAmount(amount);
+        int slot = slot(account);
+        long current = balances.get(slot);
+        while(true){
+            long next = Math.addExact(current, amount);
+            long seen = balances.compareAndExchange(slot, current, next);
+            if(seen == current){
+                return next;
+            }
+            current = seen;
+        }
+    }
+
+    //sum of all accounts, only exact when no other thread is writing.
+    public long total(){
+        long sum = 0;
+        for(int i = 0; i < accounts; i++){
+            sum += balances.get(i * PAD);
+        }
+        return sum;
+    }
+
+    private int slot(int account){
+        if(account < 0 || account >= accounts){
+            throw new IndexOutOfBoundsException("no such account: "+account);
+        }
+        return account * PAD;
+    }
+
+    private static void checkAmount(long amount){
+        if(amount <= 0){
+            throw new IllegalArgumentException("amount must be positive: "+amount);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package Advance_Multithreading;
+
+/*
+ * Same idea as Driver, but every thread withdraws from its own account in a Ledger.
+ * Run it and compare ops/sec for 1 thread and for all cores, with different accounts it should scale with cores.
+ */
+public class LedgerDriver {
+    private static final int OPS_PER_THREAD = 5_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int threads = 1; threads <= cores; threads *= 2){
+            run(threads, false);
+            run(threads, true);
+        }
+    }
+
+    private static void run(int threads, boolean sameAccount) throws InterruptedException {
+        Ledger ledger = new Ledger(threads, (long) OPS_PER_THREAD * threads);
+        Thread[] workers = new Thread[threads];
+        for(int i = 0; i < threads; i++){
+            int account = sameAccount ? 0 : i;
+            workers[i] = new Thread(()->{
+                for(int op = 0; op < OPS_PER_THREAD; op++){
+                    ledger.withdraw(account, 1);
+                }
+            }, "Worker-"+i);
+        }
+        long start = System.nanoTime();
+        for(Thread t: workers){
+            t.start();
+        }
+        for(Thread t: workers){
+            t.join(); // wait for every thread, otherwise main prints before the work is done
+        }
+        long nanos = System.nanoTime() - start;
+        long ops = (long) OPS_PER_THREAD * threads;
+        System.out.printf("threads=%d %s ops/sec=%,d%n", threads, sameAccount ? "same account     " : "different account",
+                ops * 1_000_000_000L / nanos);
+    }
+}
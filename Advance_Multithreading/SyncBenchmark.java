@@ -0,0 +1,285 @@
+package Advance_Multithreading;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * Compares ways of making withdraw thread safe, with the same workload as Driver (many threads withdrawing)
+ * but without the sleep and the println so only the synchronization is measured.
+ *
+ * For every strategy, read mix, thread count (1/2/4/8/16) and contention level it prints throughput and p50/p99/p999 latency.
+ *   low contention  -> every operation picks a random account out of 1024
+ *   high contention -> every thread hits the same account
+ *   reads 0%        -> only withdraws (balance never runs out, so every withdraw writes)
+ *   reads 90%       -> 9 of 10 operations only read the balance; this is where StampedLock's optimistic read
+ *                      (no lock, no write to shared memory) can win, a withdraw always needs the write lock
+ *
+ * Run: java Advance_Multithreading.SyncBenchmark [warmupSeconds] [measureSeconds] [readPercent]
+ * (readPercent runs only that mix instead of both)
+ * (No JMH in this project, so warmup and the stop flag are done by hand. Latency includes ~20ns of System.nanoTime.)
+ */
+public class SyncBenchmark {
+    private static final int ACCOUNTS = 1024;
+    private static final long OPENING = Long.MAX_VALUE / 4;
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    //what every strategy has to do: take money out of one account if there is enough, and read a balance.
+    interface Accounts {
+        boolean withdraw(int account, long amount);
+
+        long balance(int account);
+    }
+
+    static class SynchronizedAccounts implements Accounts {
+        private final Object[] monitors = new Object[ACCOUNTS];
+        private final long[] balances = new long[ACCOUNTS];
+
+        SynchronizedAccounts(){
+            for(int i = 0; i < ACCOUNTS; i++){
+                monitors[i] = new Object();
+                balances[i] = OPENING;
+            }
+        }
+
+        @Override
+        public boolean withdraw(int account, long amount){
+            synchronized (monitors[account]){
+                if(balances[account] < amount){
+                    return false;
+                }
+                balances[account] -= amount;
+                return true;
+            }
+        }
+
+        @Override
+        public long balance(int account){
+            synchronized (monitors[account]){
+                return balances[account];
+            }
+        }
+    }
+
+    static class ReentrantLockAccounts implements Accounts {
+        private final ReentrantLock[] locks = new ReentrantLock[ACCOUNTS];
+        private final long[] balances = new long[ACCOUNTS];
+
+        ReentrantLockAccounts(boolean fair){
+            for(int i = 0; i < ACCOUNTS; i++){
+                locks[i] = new ReentrantLock(fair);
+                balances[i] = OPENING;
+            }
+        }
+
+        @Override
+        public boolean withdraw(int account, long amount){
+            ReentrantLock lock = locks[account];
+            lock.lock();
+            try{
+                if(balances[account] < amount){
+                    return false;
+                }
+                balances[account] -= amount;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long balance(int account){
+            ReentrantLock lock = locks[account];
+            lock.lock();
+            try{
+                return balances[account];
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //balance() reads without locking (optimistic read) and only falls back to the read lock when a write got in between.
+    //withdraw always takes the write lock: it has to write anyway, and an optimistic pre-check would only help
+    //when the balance is too low, which never happens with this workload.
+    static class StampedLockAccounts implements Accounts {
+        private final StampedLock[] locks = new StampedLock[ACCOUNTS];
+        private final long[] balances = new long[ACCOUNTS];
+
+        StampedLockAccounts(){
+            for(int i = 0; i < ACCOUNTS; i++){
+                locks[i] = new StampedLock();
+                balances[i] = OPENING;
+            }
+        }
+
+        @Override
+        public boolean withdraw(int account, long amount){
+            StampedLock lock = locks[account];
+            long stamp = lock.writeLock();
+            try{
+                if(balances[account] < amount){
+                    return false;
+                }
+                balances[account] -= amount;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public long balance(int account){
+            StampedLock lock = locks[account];
+            long stamp = lock.tryOptimisticRead();
+            long seen = balances[account];
+            if(lock.validate(stamp)){
+                return seen; // nobody wrote while we read
+            }
+            stamp = lock.readLock();
+            try{
+                return balances[account];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    //AtomicLong CAS per account, this is the Ledger.
+    static class CasAccounts implements Accounts {
+        private final Ledger ledger = new Ledger(ACCOUNTS, OPENING);
+
+        @Override
+        public boolean withdraw(int account, long amount){
+            return ledger.withdraw(account, amount);
+        }
+
+        @Override
+        public long balance(int account){
+            return ledger.balance(account);
+        }
+    }
+
+    //LongAdder never fails under contention, but it cannot check "enough balance" atomically.
+    //The check here reads sum() first, so it can overdraw a little: only fine where that is allowed.
+    static class LongAdderAccounts implements Accounts {
+        private final LongAdder[] balances = new LongAdder[ACCOUNTS];
+
+        LongAdderAccounts(){
+            for(int i = 0; i < ACCOUNTS; i++){
+                balances[i] = new LongAdder();
+                balances[i].add(OPENING);
+            }
+        }
+
+        @Override
+        public boolean withdraw(int account, long amount){
+            LongAdder balance = balances[account];
+            if(balance.sum() < amount){
+                return false;
+            }
+            balance.add(-amount);
+            return true;
+        }
+
+        @Override
+        public long balance(int account){
+            return balances[account].sum();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long warmup = (args.length > 0 ? Long.parseLong(args[0]) : 1) * 1000;
+        long measure = Math.max(1, args.length > 1 ? Long.parseLong(args[1]) : 2) * 1000;
+        int[] readMixes = args.length > 2 ? new int[]{Integer.parseInt(args[2])} : new int[]{0, 90};
+        String[] names = {"synchronized", "ReentrantLock(unfair)", "ReentrantLock(fair)", "StampedLock(opt. read)",
+                "AtomicLong CAS", "LongAdder"};
+
+        System.out.printf("%-24s %5s %-5s %7s %14s %8s %8s %8s%n", "strategy", "reads", "cont", "threads", "ops/sec",
+                "p50 ns", "p99 ns", "p999 ns");
+        for(int s = 0; s < names.length; s++){
+            for(int reads: readMixes){
+                for(boolean high: new boolean[]{false, true}){
+                    for(int threads: THREADS){
+                        Accounts accounts = create(s);
+                        run(accounts, threads, high, reads, warmup); // warmup, let the JIT compile withdraw and balance
+                        Result r = run(accounts, threads, high, reads, measure);
+                        System.out.printf("%-24s %4d%% %-5s %7d %,14d %8d %8d %8d%n", names[s], reads, high ? "high" : "low",
+                                threads, r.ops * 1000 / measure, r.latency.percentile(50), r.latency.percentile(99),
+                                r.latency.percentile(99.9));
+                    }
+                }
+            }
+        }
+    }
+
+    private static Accounts create(int strategy){
+        switch (strategy){
+            case 0: return new SynchronizedAccounts();
+            case 1: return new ReentrantLockAccounts(false);
+            case 2: return new ReentrantLockAccounts(true);
+            case 3: return new StampedLockAccounts();
+            case 4: return new CasAccounts();
+            default: return new LongAdderAccounts();
+        }
+    }
+
+    static class Result {
+        long ops;
+        long seen; // sum of the balances read, kept so the JIT cannot drop the reads
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private static Result run(Accounts accounts, int threads, boolean highContention, int readPercent, long millis)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Result[] perThread = new Result[threads];
+        Thread[] workers = new Thread[threads];
+        AtomicBoolean stop = new AtomicBoolean();
+        for(int i = 0; i < threads; i++){
+            Result mine = perThread[i] = new Result();
+            workers[i] = new Thread(()->{
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try{
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long ops = 0;
+                long seen = 0;
+                while(true){
+                    //check the stop flag every 1024 ops so the check does not dominate the loop
+                    if((ops & 1023) == 0 && stop.get()){
+                        break;
+                    }
+                    int account = highContention ? 0 : random.nextInt(ACCOUNTS);
+                    boolean read = readPercent > 0 && random.nextInt(100) < readPercent;
+                    long t0 = System.nanoTime();
+                    if(read){
+                        seen += accounts.balance(account);
+                    } else {
+                        accounts.withdraw(account, 1);
+                    }
+                    mine.latency.record(System.nanoTime() - t0);
+                    ops++;
+                }
+                mine.ops = ops;
+                mine.seen = seen;
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        Result total = new Result();
+        for(int i = 0; i < threads; i++){
+            workers[i].join();
+            total.ops += perThread[i].ops;
+            total.latency.merge(perThread[i].latency);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,100 @@
+package Advance_Multithreading;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Stress test for BankAccount.transfer(): many threads move random amounts between random accounts.
+ *  - an auditor thread takes BankAccount.total() snapshots while the transfers run, the sum must never change
+ *  - if the workers stop making progress, the JVM is asked for deadlocked threads
+ *  - at the end the total is checked again and the throughput printed
+ *
+ * args: [accounts] [transfers] [threads]   (threads default = number of cores, at least 2)
+ */
+public class TransferStress {
+    public static void main(String[] args) throws InterruptedException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        long transfers = args.length > 1 ? Long.parseLong(args[1]) : 4_000_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        int opening = 1000;
+
+        BankAccount[] all = new BankAccount[accounts];
+        for(int i = 0; i < accounts; i++){
+            all[i] = new BankAccount(opening, 0, false);
+        }
+        long expected = (long) accounts * opening;
+
+        LongAdder done = new LongAdder();
+        LongAdder refused = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++){
+            long share = transfers / threads + (t < transfers % threads ? 1 : 0);
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for(long i = 0; i < share; i++){
+                    int from = random.nextInt(accounts);
+                    int to = random.nextInt(accounts - 1);
+                    if(to >= from){
+                        to++; // never the same account
+                    }
+                    if(!BankAccount.transfer(all[from], all[to], 1 + random.nextInt(200))){
+                        refused.increment();
+                    }
+                    done.increment();
+                }
+            }, "transfer-" + t);
+        }
+
+        long[] audits = new long[1];
+        boolean[] auditFailed = new boolean[1];
+        Thread auditor = new Thread(() -> {
+            while(!Thread.currentThread().isInterrupted()){
+                long total = BankAccount.total(all);
+                audits[0]++;
+                if(total != expected){
+                    System.out.println("AUDIT FAILED: total " + total + " expected " + expected);
+                    auditFailed[0] = true;
+                    return;
+                }
+                try{
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "auditor");
+
+        System.out.println(threads + " threads, " + accounts + " accounts, " + transfers + " transfers");
+        long start = System.nanoTime();
+        for(Thread w: workers){
+            w.start();
+        }
+        auditor.start();
+
+        //watchdog: no progress for 5 seconds -> look for a deadlock
+        long last = -1;
+        for(Thread w: workers){
+            while(w.isAlive()){
+                w.join(5000);
+                long now = done.sum();
+                if(w.isAlive() && now == last){
+                    long[] deadlocked = ManagementFactory.getThreadMXBean().findDeadlockedThreads();
+                    System.out.println(deadlocked == null ? "no progress, but no deadlock found"
+                            : "DEADLOCK between " + deadlocked.length + " threads");
+                    System.exit(1);
+                }
+                last = now;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        auditor.interrupt();
+        auditor.join();
+
+        long total = BankAccount.total(all);
+        System.out.printf("%,d transfers in %.2fs = %,.0f transfers/s (%,d refused for low balance)%n",
+                done.sum(), seconds, done.sum() / seconds, refused.sum());
+        System.out.println(audits[0] + " audits while running, final total " + total + " expected " + expected);
+        System.out.println(total == expected && !auditFailed[0] ? "total conserved" : "TOTAL NOT CONSERVED");
+    }
+}
@@ -8,16 +8,9 @@ public class Animal {
 
     }
 
-}
-
-class Dog extends Animal{
-    @Override
-    void sound() {
-//        super.sound();//super keyword is like this keyword It refers to the parent method or constructor.
-        System.out.println("Dog in barking");
+    //how loud the animal is (dB), no printing so it can be called millions of times (see AnimalDispatchBenchmark)
+    int soundLevel(){
+        return 50;
     }
 
-    void run(){
-     System.out.println("The dog is running");
- }
 }
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Batch processing for a mixed List<Animal>.
+ *
+ * In a loop like "for(Animal a: animals) total += a.soundLevel();" the JIT remembers which classes it saw at that call:
+ *   1 class     -> monomorphic: one type check, then the method is inlined
+ *   2 classes   -> bimorphic: two checks, both inlined
+ *   3+ classes  -> megamorphic: no inlining, a virtual (vtable) call for every element
+ * Here the list is first split by the exact class, then every group runs in its OWN copy of the loop,
+ * so every loop is a separate call site that only ever sees one class and gets inlined again.
+ * A class gets a loop the first time it is seen, so new subclasses need no change here. Only after LOOPS
+ * different classes do the rest share the last loop (and that loop goes megamorphic if three or more share it).
+ */
+public class AnimalBatch {
+    static final int LOOPS = 8;
+
+    //class -> its loop, handed out in the order the classes are first seen
+    private static final Map<Class<? extends Animal>, Integer> loops = new HashMap<>();
+
+    //groups by exact class, keeping the order in which the classes first appear
+    public static Map<Class<? extends Animal>, List<Animal>> partition(List<? extends Animal> animals){
+        Map<Class<? extends Animal>, List<Animal>> groups = new LinkedHashMap<>();
+        for(Animal a: animals){
+            groups.computeIfAbsent(a.getClass(), k -> new ArrayList<>()).add(a);
+        }
+        return groups;
+    }
+
+    //same as adding soundLevel() of every animal
+    public static long totalSoundLevel(Map<Class<? extends Animal>, List<Animal>> groups){
+        long total = 0;
+        for(Map.Entry<Class<? extends Animal>, List<Animal>> group: groups.entrySet()){
+            List<Animal> animals = group.getValue();
+            switch (loop(group.getKey())){
+                case 0: total += loop0(animals); break;
+                case 1: total += loop1(animals); break;
+                case 2: total += loop2(animals); break;
+                case 3: total += loop3(animals); break;
+                case 4: total += loop4(animals); break;
+                case 5: total += loop5(animals); break;
+                case 6: total += loop6(animals); break;
+                default: total += shared(animals);
+            }
+        }
+        return total;
+    }
+
+    public static long totalSoundLevel(List<? extends Animal> animals){
+        return totalSoundLevel(partition(animals));
+    }
+
+    private static synchronized int loop(Class<? extends Animal> type){
+        Integer loop = loops.get(type);
+        if(loop == null){
+            loop = Math.min(loops.size(), LOOPS - 1);
+            loops.put(type, loop);
+        }
+        return loop;
+    }
+
+    //the loops are the same code on purpose: each method has its own type profile, which is the whole point
+    private static long loop0(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long loop1(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long loop2(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long loop3(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long loop4(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long loop5(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long loop6(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    //loop LOOPS - 1, shared by every class after the first LOOPS - 1
+    private static long shared(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/*
+ * Cost of a.soundLevel() on a List<Animal> of 1M animals when the call site sees 1, 2 or 6 classes,
+ * and the same 6 class list through AnimalBatch (split by class, one loop per class).
+ * Every case has its own copy of the loop (mono/bi/mega) so the JIT keeps a separate type profile for each;
+ * with one shared loop the first megamorphic list would slow down all the others too.
+ */
+public class AnimalDispatchBenchmark {
+    private static final int ANIMALS = 1_000_000;
+
+    public static void main(String[] args){
+        List<Animal> one = animals(List.of(Dog::new));
+        List<Animal> two = animals(List.of(Dog::new, Cat::new));
+        List<Animal> six = animals(List.of(Dog::new, Cat::new, Cow::new, Duck::new, Horse::new, Sheep::new));
+        Map<Class<? extends Animal>, List<Animal>> grouped = AnimalBatch.partition(six);
+
+        for(int round = 1; round <= 5; round++){
+            long t0 = System.nanoTime();
+            long a = mono(one);
+            long t1 = System.nanoTime();
+            long b = bi(two);
+            long t2 = System.nanoTime();
+            long c = mega(six);
+            long t3 = System.nanoTime();
+            long d = AnimalBatch.totalSoundLevel(grouped);
+            long t4 = System.nanoTime();
+            System.out.printf("round %d ns/call: 1 class %.2f | 2 classes %.2f | 6 classes %.2f | 6 classes batched %.2f  (same total: %b, %d %d)%n",
+                    round, (t1 - t0) / (double) ANIMALS, (t2 - t1) / (double) ANIMALS, (t3 - t2) / (double) ANIMALS,
+                    (t4 - t3) / (double) ANIMALS, c == d, a, b);
+        }
+        long t0 = System.nanoTime();
+        AnimalBatch.partition(six);
+        System.out.printf("partition (done once per batch): %.2f ns/animal%n", (System.nanoTime() - t0) / (double) ANIMALS);
+    }
+
+    private static List<Animal> animals(List<Supplier<Animal>> kinds){
+        List<Animal> animals = new ArrayList<>(ANIMALS);
+        for(int i = 0; i < ANIMALS; i++){
+            animals.add(kinds.get(i % kinds.size()).get());
+        }
+        Collections.shuffle(animals, new Random(1)); // random order, so the branch predictor cannot guess the class
+        return animals;
+    }
+
+    private static long mono(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long bi(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+
+    private static long mega(List<Animal> animals){
+        long total = 0;
+        for(int i = 0, n = animals.size(); i < n; i++){
+            total += animals.get(i).soundLevel();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,199 @@
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.stream.IntStream;
+
+/*
+ * Fast sums over big arrays and buffers, used by the bulk Polymorphism.number(...) overloads.
+ *
+ *  - loops are unrolled by 4 with 4 separate running totals, so the cpu can do 4 additions at the same time
+ *    (and the JIT can turn them into SIMD instructions)
+ *  - int values are added in halves per block and then in long, so the total never overflows
+ *  - long values are added in 128 bits (high + low long), the result only fails if the final total does not fit
+ *  - double values use Kahan summation, the rounding error of every addition is kept and added back
+ *  - above PARALLEL_THRESHOLD elements the array is cut in chunks that are summed on all cores (fork-join pool)
+ */
+public class ArraySum {
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int CHUNK = 1 << 18;
+    private static final int BLOCK = 1 << 15;
+
+    public static long sum(int[] a){
+        if(a.length >= PARALLEL_THRESHOLD){
+            return IntStream.range(0, chunks(a.length)).parallel()
+                    .mapToLong(c -> sum(a, c * CHUNK, Math.min(a.length, (c + 1) * CHUNK))).sum();
+        }
+        return sum(a, 0, a.length);
+    }
+
+    //throws ArithmeticException if the total does not fit in a long
+    public static long sum(long[] a){
+        long[] total = new long[2];
+        if(a.length >= PARALLEL_THRESHOLD){
+            long[][] parts = IntStream.range(0, chunks(a.length)).parallel()
+                    .mapToObj(c -> sum(a, c * CHUNK, Math.min(a.length, (c + 1) * CHUNK))).toArray(long[][]::new);
+            for(long[] part: parts){
+                add128(total, part[0], part[1]);
+            }
+        } else {
+            long[] part = sum(a, 0, a.length);
+            add128(total, part[0], part[1]);
+        }
+        return toLongExact(total);
+    }
+
+    public static double sum(double[] a){
+        if(a.length >= PARALLEL_THRESHOLD){
+            double[] parts = IntStream.range(0, chunks(a.length)).parallel()
+                    .mapToDouble(c -> sum(a, c * CHUNK, Math.min(a.length, (c + 1) * CHUNK))).toArray();
+            return sum(parts, 0, parts.length);
+        }
+        return sum(a, 0, a.length);
+    }
+
+    //sums the elements between position and limit, the buffer position is not changed
+    public static long sum(IntBuffer b){
+        int from = b.position();
+        int to = b.limit();
+        if(to - from >= PARALLEL_THRESHOLD){
+            return IntStream.range(0, chunks(to - from)).parallel()
+                    .mapToLong(c -> sum(b, from + c * CHUNK, Math.min(to, from + (c + 1) * CHUNK))).sum();
+        }
+        return sum(b, from, to);
+    }
+
+    public static double sum(DoubleBuffer b){
+        int from = b.position();
+        int to = b.limit();
+        if(to - from >= PARALLEL_THRESHOLD){
+            double[] parts = IntStream.range(0, chunks(to - from)).parallel()
+                    .mapToDouble(c -> sum(b, from + c * CHUNK, Math.min(to, from + (c + 1) * CHUNK))).toArray();
+            return sum(parts, 0, parts.length);
+        }
+        return sum(b, from, to);
+    }
+
+    //every int is split in a signed high half and an unsigned low half. Over a block of 2^15 elements both halves
+    //can be added in plain int without overflow, and plain int loops are what the JIT turns into SIMD code.
+    private static long sum(int[] a, int from, int to){
+        long total = 0;
+        for(int block = from; block < to; block += BLOCK){
+            int end = Math.min(to, block + BLOCK);
+            int high = 0;
+            int low = 0;
+            for(int i = block; i < end; i++){
+                high += a[i] >> 16;
+                low += a[i] & 0xFFFF;
+            }
+            total += ((long) high << 16) + (low & 0xFFFFFFFFL);
+        }
+        return total;
+    }
+
+    private static long sum(IntBuffer b, int from, int to){
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for(; i + 3 < to; i += 4){
+            s0 += b.get(i);
+            s1 += b.get(i + 1);
+            s2 += b.get(i + 2);
+            s3 += b.get(i + 3);
+        }
+        for(; i < to; i++){
+            s0 += b.get(i);
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    //returns {high, low} of the exact 128 bit sum. Two lanes, each one carries into its own high word.
+    private static long[] sum(long[] a, int from, int to){
+        long lo0 = 0, hi0 = 0, lo1 = 0, hi1 = 0;
+        int i = from;
+        for(; i + 1 < to; i += 2){
+            long x = a[i];
+            long y = a[i + 1];
+            long n0 = lo0 + x;
+            long n1 = lo1 + y;
+            //carry out of the low word (unsigned overflow) without a branch, the sign of x extends into the high word
+            hi0 += (x >> 63) + (((lo0 & x) | ((lo0 | x) & ~n0)) >>> 63);
+            hi1 += (y >> 63) + (((lo1 & y) | ((lo1 | y) & ~n1)) >>> 63);
+            lo0 = n0;
+            lo1 = n1;
+        }
+        long[] total = {hi0, lo0};
+        add128(total, hi1, lo1);
+        for(; i < to; i++){
+            add128(total, a[i] >> 63, a[i]);
+        }
+        return total;
+    }
+
+    private static double sum(double[] a, int from, int to){
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        double c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        int i = from;
+        for(; i + 3 < to; i += 4){
+            double y0 = a[i] - c0, t0 = s0 + y0;
+            double y1 = a[i + 1] - c1, t1 = s1 + y1;
+            double y2 = a[i + 2] - c2, t2 = s2 + y2;
+            double y3 = a[i + 3] - c3, t3 = s3 + y3;
+            c0 = (t0 - s0) - y0;
+            c1 = (t1 - s1) - y1;
+            c2 = (t2 - s2) - y2;
+            c3 = (t3 - s3) - y3;
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        for(; i < to; i++){
+            double y = a[i] - c0, t = s0 + y;
+            c0 = (t - s0) - y;
+            s0 = t;
+        }
+        return (s0 + s1) + (s2 + s3) - ((c0 + c1) + (c2 + c3));
+    }
+
+    private static double sum(DoubleBuffer b, int from, int to){
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        double c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        int i = from;
+        for(; i + 3 < to; i += 4){
+            double y0 = b.get(i) - c0, t0 = s0 + y0;
+            double y1 = b.get(i + 1) - c1, t1 = s1 + y1;
+            double y2 = b.get(i + 2) - c2, t2 = s2 + y2;
+            double y3 = b.get(i + 3) - c3, t3 = s3 + y3;
+            c0 = (t0 - s0) - y0;
+            c1 = (t1 - s1) - y1;
+            c2 = (t2 - s2) - y2;
+            c3 = (t3 - s3) - y3;
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        for(; i < to; i++){
+            double y = b.get(i) - c0, t = s0 + y;
+            c0 = (t - s0) - y;
+            s0 = t;
+        }
+        return (s0 + s1) + (s2 + s3) - ((c0 + c1) + (c2 + c3));
+    }
+
+    private static void add128(long[] total, long hi, long lo){
+        long n = total[1] + lo;
+        total[0] += hi + (Long.compareUnsigned(n, total[1]) < 0 ? 1 : 0);
+        total[1] = n;
+    }
+
+    private static long toLongExact(long[] total){
+        //fits in a long only if the high word is just the sign extension of the low word
+        if(total[0] != (total[1] >> 63)){
+            throw new ArithmeticException("long overflow: sum does not fit in a long");
+        }
+        return total[1];
+    }
+
+    private static int chunks(int length){
+        return (length + CHUNK - 1) / CHUNK;
+    }
+}
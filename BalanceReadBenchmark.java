@@ -0,0 +1,183 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * Balance reads while withdrawals run, three ways:
+ *   seqlock   AccountStore.balance(): readers never lock and never write shared memory
+ *   stamped   StampedLock.tryOptimisticRead() + validate(), falls back to a read lock
+ *   rwlock    ReentrantReadWriteLock read lock, every reader updates the lock's reader count
+ * at 95/5 and 50/50 read/write mixes on 1, 2, 4 and 8 threads.
+ *
+ * Every written balance is (k << 32) | k, so a reader that gets a value with different halves saw a torn write.
+ *
+ * args: [millisPerRun] [accounts]
+ */
+public class BalanceReadBenchmark {
+    interface Balances {
+        long read(int account);
+        void write(int account, long value);
+    }
+
+    static final class SeqlockBalances implements Balances {
+        final AccountStore store;
+
+        SeqlockBalances(int accounts){
+            store = new AccountStore(accounts);
+            for(int i = 0; i < accounts; i++){
+                store.open("Account" + i, 0);
+            }
+        }
+
+        public long read(int account){
+            return store.balance(account);
+        }
+
+        public void write(int account, long value){
+            store.setBalance(account, value);
+        }
+    }
+
+    //one lock per 16 accounts, same for the rwlock version
+    static final class StampedBalances implements Balances {
+        final long[] balance;
+        final StampedLock[] locks;
+
+        StampedBalances(int accounts){
+            balance = new long[accounts];
+            locks = new StampedLock[(accounts + 15) / 16];
+            for(int i = 0; i < locks.length; i++){
+                locks[i] = new StampedLock();
+            }
+        }
+
+        public long read(int account){
+            StampedLock lock = locks[account >> 4];
+            long stamp = lock.tryOptimisticRead();
+            long value = balance[account];
+            if(lock.validate(stamp)){
+                return value;
+            }
+            stamp = lock.readLock();
+            try{
+                return balance[account];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        public void write(int account, long value){
+            StampedLock lock = locks[account >> 4];
+            long stamp = lock.writeLock();
+            try{
+                balance[account] = value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    static final class RwLockBalances implements Balances {
+        final long[] balance;
+        final ReentrantReadWriteLock[] locks;
+
+        RwLockBalances(int accounts){
+            balance = new long[accounts];
+            locks = new ReentrantReadWriteLock[(accounts + 15) / 16];
+            for(int i = 0; i < locks.length; i++){
+                locks[i] = new ReentrantReadWriteLock();
+            }
+        }
+
+        public long read(int account){
+            ReentrantReadWriteLock.ReadLock lock = locks[account >> 4].readLock();
+            lock.lock();
+            try{
+                return balance[account];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void write(int account, long value){
+            ReentrantReadWriteLock.WriteLock lock = locks[account >> 4].writeLock();
+            lock.lock();
+            try{
+                balance[account] = value;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int[] threadCounts = {1, 2, 4, 8};
+        int[] writePercents = {5, 50};
+        String[] names = {"seqlock", "stamped", "rwlock"};
+
+        System.out.println(Runtime.getRuntime().availableProcessors() + " cores, " + accounts + " accounts, reads per second:");
+        for(int writes: writePercents){
+            System.out.printf("%n%d/%d read/write%n%-8s", 100 - writes, writes, "threads");
+            for(int t: threadCounts){
+                System.out.printf("%14d", t);
+            }
+            System.out.println();
+            for(String name: names){
+                System.out.printf("%-8s", name);
+                for(int t: threadCounts){
+                    Balances b = name.equals("seqlock") ? new SeqlockBalances(accounts)
+                            : name.equals("stamped") ? new StampedBalances(accounts) : new RwLockBalances(accounts);
+                    run(b, accounts, t, writes, millis / 4); // warm up
+                    System.out.printf("%,14.0f", run(b, accounts, t, writes, millis));
+                }
+                System.out.println();
+            }
+        }
+        System.out.println(torn.sum() == 0 ? "no torn reads" : "TORN READS: " + torn.sum());
+    }
+
+    static final LongAdder torn = new LongAdder();
+
+    static double run(Balances b, int accounts, int threads, int writePercent, long millis) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder reads = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++){
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long n = 0;
+                long k = 0;
+                while(!stop.get()){
+                    for(int i = 0; i < 64; i++){
+                        int account = random.nextInt(accounts);
+                        if(random.nextInt(100) < writePercent){
+                            k = (k + 1) & 0x7FFFFFFF;
+                            b.write(account, k << 32 | k);
+                        } else {
+                            long v = b.read(account);
+                            if(v >>> 32 != (v & 0xFFFFFFFFL)){
+                                torn.increment();
+                            }
+                            n++;
+                        }
+                    }
+                }
+                reads.add(n);
+            });
+        }
+        long start = System.nanoTime();
+        for(Thread w: workers){
+            w.start();
+        }
+        Thread.sleep(millis);
+        stop.set(true);
+        for(Thread w: workers){
+            w.join();
+        }
+        return reads.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -2,7 +2,7 @@ public class Build{
     
     public static void main(String[] args){
         //car object creation 
-        car c1 = new car(); //default constructor has been created.
+        car c1 = new car(); //default constructor has been created. (the car class is in car.java)
         c1.brand = "Honda";
         c1.color = "Black";
         c1.price = 1500000;
@@ -11,14 +11,3 @@ public class Build{
 
     }
 }
-
-//Car class blue print of car;
-class car{
-    String brand;
-    String color;
-    int price;
-
-    public void displayinfo(){
-        System.out.println("The car is from brand: "+brand+" and color is "+color+" and price is "+price);
-    }
-}
\ No newline at end of file
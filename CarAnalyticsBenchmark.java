@@ -0,0 +1,47 @@
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/*
+ * Run: java -Xmx2g CarAnalyticsBenchmark [cars]
+ * Fills a CarTable with random cars and times the group-bys with a plain sequential loop and with the
+ * parallel fork-join version (5 warmup + 5 measured runs each), then checks both give the same answer.
+ * Use -Djava.util.concurrent.ForkJoinPool.common.parallelism=N to see the speedup for N cores.
+ */
+public class CarAnalyticsBenchmark {
+    private static final String[] BRANDS = {"Honda", "Toyota", "Hyundai", "Tata", "Mahindra", "Kia", "Suzuki", "BMW"};
+    private static final String[] COLORS = {"Black", "White", "Red", "Blue", "Silver", "Grey"};
+
+    public static void main(String[] args){
+        int cars = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        CarTable table = new CarTable(cars);
+        SplittableRandom random = new SplittableRandom(42);
+        for(int i = 0; i < cars; i++){
+            table.add(BRANDS[random.nextInt(BRANDS.length)], COLORS[random.nextInt(COLORS.length)], 300_000 + random.nextInt(5_000_000));
+        }
+        System.out.printf("%,d cars, %d cores%n", cars, Runtime.getRuntime().availableProcessors());
+
+        for(CarTable.GroupBy by: CarTable.GroupBy.values()){
+            long sequential = time(()-> table.groupBySequential(by));
+            long parallel = time(()-> table.groupBy(by));
+            boolean same = table.groupBySequential(by).toString().equals(table.groupBy(by).toString());
+            System.out.printf("%-16s sequential %4d ms  parallel %4d ms  speedup %.2fx  same result: %b%n", by,
+                    sequential / 1_000_000, parallel / 1_000_000, (double) sequential / parallel, same);
+        }
+        table.groupBy(CarTable.GroupBy.BRAND).forEach(System.out::println);
+    }
+
+    //best of 5 runs after 5 warmup runs
+    private static long time(Supplier<List<CarTable.Stats>> query){
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < 10; i++){
+            long t0 = System.nanoTime();
+            query.get();
+            long t = System.nanoTime() - t0;
+            if(i >= 5){
+                best = Math.min(best, t);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/*
+ * Car inventory as columns (brand id, color id, price) instead of one car object per row,
+ * with group-by count/min/max/avg of price per brand, per color, or per brand + color.
+ *
+ * groupBy() runs on a parallel IntStream (fork-join common pool). Every split of the stream gets its own Partial
+ * (plain arrays indexed by group, no locking, no boxing), and the partials are merged pairwise as the splits join,
+ * so the work splits across cores with nothing shared while it runs. A Partial only allocates the groups its rows
+ * touch: one block of colors per brand seen, so brand + color on many brands does not cost brands x colors per split.
+ */
+public class CarTable {
+    public enum GroupBy { BRAND, COLOR, BRAND_AND_COLOR }
+
+    private static final int CHUNK = 1 << 16;
+
+    //one row of a group-by result
+    public static class Stats {
+        public final String brand; // null when grouped by color only
+        public final String color; // null when grouped by brand only
+        public final long count;
+        public final long minPrice;
+        public final long maxPrice;
+        public final double avgPrice;
+
+        Stats(String brand, String color, long count, long minPrice, long maxPrice, double avgPrice){
+            this.brand = brand;
+            this.color = color;
+            this.count = count;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.avgPrice = avgPrice;
+        }
+
+        @Override
+        public String toString(){
+            return (brand == null ? "" : brand) + (brand != null && color != null ? "/" : "") + (color == null ? "" : color)
+                    + ": count=" + count + " min=" + minPrice + " max=" + maxPrice + String.format(" avg=%.1f", avgPrice);
+        }
+    }
+
+    //running totals for the groups seen by one split; a group is (block, slot), and a block is allocated on its first row
+    static class Partial {
+        final Block[] blocks;
+        final int width;
+
+        Partial(int blocks, int width){
+            this.blocks = new Block[blocks];
+            this.width = width;
+        }
+
+        void add(int block, int slot, long price){
+            Block b = blocks[block];
+            if(b == null){
+                b = blocks[block] = new Block(width);
+            }
+            b.add(slot, price);
+        }
+
+        void merge(Partial other){
+            for(int i = 0; i < blocks.length; i++){
+                Block theirs = other.blocks[i];
+                if(theirs == null){
+                    continue;
+                }
+                if(blocks[i] == null){
+                    blocks[i] = theirs;
+                } else {
+                    blocks[i].merge(theirs);
+                }
+            }
+        }
+    }
+
+    //count/sum/min/max for width groups, indexed by slot
+    static class Block {
+        final long[] count;
+        final long[] sum;
+        final long[] min;
+        final long[] max;
+
+        Block(int width){
+            count = new long[width];
+            sum = new long[width];
+            min = new long[width];
+            max = new long[width];
+            Arrays.fill(min, Long.MAX_VALUE);
+            Arrays.fill(max, Long.MIN_VALUE);
+        }
+
+        void add(int slot, long price){
+            count[slot]++;
+            sum[slot] += price;
+            if(price < min[slot]){
+                min[slot] = price;
+            }
+            if(price > max[slot]){
+                max[slot] = price;
+            }
+        }
+
+        void merge(Block other){
+            for(int g = 0; g < count.length; g++){
+                count[g] += other.count[g];
+                sum[g] += other.sum[g];
+                min[g] = Math.min(min[g], other.min[g]);
+                max[g] = Math.max(max[g], other.max[g]);
+            }
+        }
+    }
+
+    private int size;
+    private int[] brand;
+    private int[] color;
+    private int[] price;
+    private final List<String> brands = new ArrayList<>();
+    private final List<String> colors = new ArrayList<>();
+    private final Map<String, Integer> brandIds = new HashMap<>();
+    private final Map<String, Integer> colorIds = new HashMap<>();
+
+    public CarTable(int expectedCars){
+        int capacity = Math.max(16, expectedCars);
+        brand = new int[capacity];
+        color = new int[capacity];
+        price = new int[capacity];
+    }
+
+    public void add(String brand, String color, int price){
+        if(size == this.brand.length){
+            int capacity = size + (size >> 1);
+            this.brand = Arrays.copyOf(this.brand, capacity);
+            this.color = Arrays.copyOf(this.color, capacity);
+            this.price = Arrays.copyOf(this.price, capacity);
+        }
+        this.brand[size] = id(brand, brands, brandIds);
+        this.color[size] = id(color, colors, colorIds);
+        this.price[size] = price;
+        size++;
+    }
+
+    public void add(car c){
+        add(c.brand, c.color, c.price);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public List<Stats> groupBy(GroupBy by){
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        //the stream is over chunks of rows, not single rows, so every task runs a tight loop over 64K cars
+        Partial total = IntStream.range(0, chunks).parallel()
+                .collect(()-> newPartial(by), (p, chunk)-> aggregate(by, chunk * CHUNK, Math.min(size, (chunk + 1) * CHUNK), p),
+                        Partial::merge);
+        return results(by, total);
+    }
+
+    //same result as groupBy(), one thread, plain loop; used to compare speed and check the parallel version
+    public List<Stats> groupBySequential(GroupBy by){
+        Partial total = newPartial(by);
+        aggregate(by, 0, size, total);
+        return results(by, total);
+    }
+
+    //brand or color alone is one block of all its values; brand + color is one block of colors per brand
+    private Partial newPartial(GroupBy by){
+        switch (by){
+            case BRAND: return new Partial(1, brands.size());
+            case COLOR: return new Partial(1, colors.size());
+            default: return new Partial(brands.size(), colors.size());
+        }
+    }
+
+    //the switch is outside the loops so every loop only reads two int columns
+    private void aggregate(GroupBy by, int from, int to, Partial p){
+        switch (by){
+            case BRAND:
+                for(int row = from; row < to; row++){
+                    p.add(0, brand[row], price[row]);
+                }
+                break;
+            case COLOR:
+                for(int row = from; row < to; row++){
+                    p.add(0, color[row], price[row]);
+                }
+                break;
+            default:
+                for(int row = from; row < to; row++){
+                    p.add(brand[row], color[row], price[row]);
+                }
+        }
+    }
+
+    private List<Stats> results(GroupBy by, Partial total){
+        List<Stats> result = new ArrayList<>();
+        for(int block = 0; block < total.blocks.length; block++){
+            Block g = total.blocks[block];
+            if(g == null){
+                continue;
+            }
+            for(int slot = 0; slot < g.count.length; slot++){
+                if(g.count[slot] == 0){
+                    continue;
+                }
+                String b = by == GroupBy.COLOR ? null : brands.get(by == GroupBy.BRAND ? slot : block);
+                String c = by == GroupBy.BRAND ? null : colors.get(slot);
+                result.add(new Stats(b, c, g.count[slot], g.min[slot], g.max[slot], (double) g.sum[slot] / g.count[slot]));
+            }
+        }
+        return result;
+    }
+
+    private static int id(String value, List<String> values, Map<String, Integer> ids){
+        Integer id = ids.get(value);
+        if(id == null){
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+}
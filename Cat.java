@@ -0,0 +1,12 @@
+//more children of Animal, used to show what happens when one call site sees many types (AnimalDispatchBenchmark)
+class Cat extends Animal{
+    @Override
+    void sound() {
+        System.out.println("Cat is meowing");
+    }
+
+    @Override
+    int soundLevel() {
+        return 45;
+    }
+}
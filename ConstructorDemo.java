@@ -30,47 +30,7 @@ public class ConstructorDemo {
     }
 }
 
-class Student{
-    String name;
-    int age;
-    int rollno;
-    String course;
-
-    //Default constructor - calls parameterized constructor using this()
-    Student(){
-       this("Unknown", 0, 0, "Not-Assigned"); // Constructor chaining using this()
-    }
-    
-    //Constructor with name only - chains to full parameterized constructor
-    Student(String name){
-        this(name, 0, 0, "Not-Assigned"); // Constructor chaining
-    }
-    
-    //Constructor with name and age - chains to full parameterized constructor
-    Student(String name, int age){
-        this(name, age, 0, "Not-Assigned"); // Constructor chaining
-    }
-    
-    //Constructor with name, age, and rollno - chains to full parameterized constructor
-    Student(String name, int age, int rollno){
-        this(name, age, rollno, "Not-Assigned"); // Constructor chaining
-    }
-    
-    //Full parameterized constructor - the main constructor that does actual initialization
-    Student(String name, int age, int rollno, String course){
-        this.name = name;     // this keyword to refer to instance variable
-        this.age = age;
-        this.rollno = rollno;
-        this.course = course;
-        System.out.println("Full parameterized constructor called for: " + name);
-    }
-    public void displayinfo(){ 
-        System.out.println("Name: "+name+", Age: "+age+", Rollno: "+rollno+", Course: "+course);
-    }
-    public static void address(String address){
-         System.out.println("Address: "+address);
-    }
-}
+//the Student class used here is in Student.java
 
 /*
 === PROGRAM LOGIC AND TASKS DEMONSTRATED ===
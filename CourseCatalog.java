@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+ * All courses with two indexes:
+ *  - by name:  open addressing hash table (row numbers in an int[]), lookup is O(1)
+ *  - by price: sorted long[] of (price << 32 | row), a range query is a binary search + walk = O(log n + k)
+ * The price index is sorted again only when a range query comes after new courses were added.
+ *
+ * importCsv() reads the file in 1MB chunks with its own parser (name,price per line, name may be "quoted"),
+ * so a file bigger than memory can be imported and no line String is made.
+ * Adding a course with a name that is already there changes its price.
+ */
+public class CourseCatalog {
+    private static final int CHUNK = 1 << 20;
+
+    private int size;
+    private String[] names = new String[16];
+    private int[] prices = new int[16];
+    private int[] byName = new int[32]; // row + 1, 0 = empty
+    private long[] byPrice = new long[0];
+    private boolean priceIndexDirty;
+
+    public int size(){
+        return size;
+    }
+
+    public int add(String name, int price){
+        if(price < 0){
+            throw new IllegalArgumentException("price cannot be negative: " + price);
+        }
+        int row = find(name);
+        if(row < 0){
+            if(size == names.length){
+                names = Arrays.copyOf(names, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            row = size++;
+            names[row] = name;
+            if(size * 2 > byName.length){
+                rehash(byName.length * 2);
+            } else {
+                insert(row);
+            }
+        }
+        prices[row] = price;
+        priceIndexDirty = true;
+        return row;
+    }
+
+    public int add(course c){
+        return add(c.name, c.price);
+    }
+
+    //row of the course with this name, or -1
+    public int find(String name){
+        int mask = byName.length - 1;
+        for(int i = spread(name.hashCode()) & mask; byName[i] != 0; i = (i + 1) & mask){
+            if(names[byName[i] - 1].equals(name)){
+                return byName[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    public String name(int row){
+        check(row);
+        return names[row];
+    }
+
+    public int price(int row){
+        check(row);
+        return prices[row];
+    }
+
+    public course get(int row){
+        check(row);
+        return new course(names[row], prices[row]);
+    }
+
+    //calls action with the row of every course with from <= price <= to, cheapest first
+    public void forEachInPriceRange(int from, int to, IntConsumer action){
+        if(priceIndexDirty){
+            buildPriceIndex();
+        }
+        int i = lowerBound((long) from << 32);
+        for(; i < size && (int) (byPrice[i] >>> 32) <= to; i++){
+            action.accept((int) byPrice[i]);
+        }
+    }
+
+    public int countInPriceRange(int from, int to){
+        if(priceIndexDirty){
+            buildPriceIndex();
+        }
+        if(from > to){
+            return 0;
+        }
+        //largest key with price == to, so to = Integer.MAX_VALUE does not overflow into the sign bit
+        return upperBound((long) to << 32 | 0xFFFFFFFFL) - lowerBound((long) from << 32);
+    }
+
+    //imports "name,price" lines, returns how many lines were read
+    public long importCsv(Path file, boolean hasHeader) throws IOException {
+        long lines = 0;
+        byte[] text = new byte[CHUNK];
+        ByteBuffer buf = ByteBuffer.wrap(text);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            boolean skip = hasHeader;
+            boolean eof = false;
+            while(!eof){
+                eof = channel.read(buf) < 0;
+                int end = buf.position();
+                int start = 0;
+                for(int nl = indexOf(text, start, end); nl >= 0 || (eof && start < end); nl = indexOf(text, start, end)){
+                    int lineEnd = nl >= 0 ? nl : end;
+                    lines++;
+                    if(skip){
+                        skip = false;
+                    } else if(lineEnd > start && !(lineEnd == start + 1 && text[start] == '\r')){
+                        parseLine(text, start, lineEnd, lines);
+                    }
+                    start = lineEnd + 1;
+                    if(nl < 0){
+                        break;
+                    }
+                }
+                if(start == 0 && end == text.length){
+                    throw new IOException("line " + (lines + 1) + " is longer than " + CHUNK + " bytes");
+                }
+                //keep the unfinished last line for the next read
+                System.arraycopy(text, Math.min(start, end), text, 0, end - Math.min(start, end));
+                buf.position(end - Math.min(start, end));
+            }
+        }
+        return lines;
+    }
+
+    private void parseLine(byte[] text, int start, int end, long lineNo){
+        if(text[end - 1] == '\r'){
+            end--;
+        }
+        int comma = -1;
+        String name;
+        if(text[start] == '"'){
+            //quoted name, "" inside means one "
+            StringBuilder sb = new StringBuilder();
+            int i = start + 1;
+            int runStart = i;
+            while(true){
+                if(i >= end){
+                    throw new IllegalArgumentException("line " + lineNo + ": missing closing quote");
+                }
+                if(text[i] == '"'){
+                    sb.append(new String(text, runStart, i - runStart, StandardCharsets.UTF_8));
+                    if(i + 1 < end && text[i + 1] == '"'){
+                        sb.append('"');
+                        i += 2;
+                        runStart = i;
+                        continue;
+                    }
+                    comma = i + 1;
+                    break;
+                }
+                i++;
+            }
+            name = sb.toString();
+        } else {
+            for(int i = start; i < end; i++){
+                if(text[i] == ','){
+                    comma = i;
+                    break;
+                }
+            }
+            name = comma < 0 ? null : new String(text, start, comma - start, StandardCharsets.UTF_8);
+        }
+        if(comma < 0 || comma >= end || text[comma] != ','){
+            throw new IllegalArgumentException("line " + lineNo + ": expected name,price");
+        }
+        int price = 0;
+        int i = comma + 1;
+        while(i < end && text[i] == ' '){
+            i++;
+        }
+        if(i == end){
+            throw new IllegalArgumentException("line " + lineNo + ": price is missing");
+        }
+        for(; i < end; i++){
+            int digit = text[i] - '0';
+            if(digit < 0 || digit > 9 || price > (Integer.MAX_VALUE - digit) / 10){
+                throw new IllegalArgumentException("line " + lineNo + ": bad price");
+            }
+            price = price * 10 + digit;
+        }
+        add(name, price);
+    }
+
+    private void buildPriceIndex(){
+        if(byPrice.length < size){
+            byPrice = new long[names.length];
+        }
+        for(int row = 0; row < size; row++){
+            byPrice[row] = (long) prices[row] << 32 | row;
+        }
+        Arrays.sort(byPrice, 0, size);
+        priceIndexDirty = false;
+    }
+
+    //first position in byPrice[0..size) with value >= key
+    private int lowerBound(long key){
+        int lo = 0;
+        int hi = size;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(byPrice[mid] < key){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    //first position in byPrice[0..size) with value > key
+    private int upperBound(long key){
+        int lo = 0;
+        int hi = size;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(byPrice[mid] <= key){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void insert(int row){
+        int mask = byName.length - 1;
+        int i = spread(names[row].hashCode()) & mask;
+        while(byName[i] != 0){
+            i = (i + 1) & mask;
+        }
+        byName[i] = row + 1;
+    }
+
+    private void rehash(int slots){
+        byName = new int[slots];
+        for(int row = 0; row < size; row++){
+            insert(row);
+        }
+    }
+
+    private static int indexOf(byte[] text, int from, int to){
+        for(int i = from; i < to; i++){
+            if(text[i] == '\n'){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int spread(int h){
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void check(int row){
+        if(row < 0 || row >= size){
+            throw new IndexOutOfBoundsException("no such course: " + row);
+        }
+    }
+}
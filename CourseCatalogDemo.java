@@ -0,0 +1,59 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Run: java CourseCatalogDemo [rows]
+ * Writes a CSV of random courses, imports it into a CourseCatalog and prints rows/sec,
+ * then checks name lookups and "between 2000 and 5000" range queries against a plain loop over all courses.
+ */
+public class CourseCatalogDemo {
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path csv = Files.createTempFile("courses", ".csv");
+        try(BufferedWriter out = Files.newBufferedWriter(csv)){
+            out.write("name,price\n");
+            out.write("\"Java, \"\"Core\"\" and OOP\",4590\n");
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for(int i = 1; i < rows; i++){
+                out.write("Course-" + i + "," + random.nextInt(10_000) + "\n");
+            }
+        }
+
+        CourseCatalog catalog = new CourseCatalog();
+        long t0 = System.nanoTime();
+        long lines = catalog.importCsv(csv, true);
+        long nanos = System.nanoTime() - t0;
+        System.out.printf("imported %,d lines (%,d MB) in %d ms = %,d rows/sec%n", lines, Files.size(csv) >> 20,
+                nanos / 1_000_000, (long) (catalog.size() * 1e9 / nanos));
+        Files.delete(csv);
+
+        catalog.get(catalog.find("Java, \"Core\" and OOP")).displayInfo();
+
+        t0 = System.nanoTime();
+        long found = 0;
+        for(int i = 1; i < rows; i++){
+            found += catalog.find("Course-" + i) >= 0 ? 1 : 0;
+        }
+        System.out.printf("%,d name lookups: %d ns each, all found: %b%n", rows - 1, (System.nanoTime() - t0) / rows, found == rows - 1);
+
+        int[] count = new int[1];
+        t0 = System.nanoTime();
+        catalog.forEachInPriceRange(2000, 5000, row -> count[0]++); // first query also sorts the price index
+        long first = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        int again = catalog.countInPriceRange(2000, 5000);
+        long second = System.nanoTime() - t0;
+        int scan = 0;
+        for(int row = 0; row < catalog.size(); row++){
+            int price = catalog.price(row);
+            if(price >= 2000 && price <= 5000){
+                scan++;
+            }
+        }
+        System.out.printf("courses between 2000 and 5000: %,d (sort + walk %d ms, count again %d us), plain loop agrees: %b%n",
+                count[0], first / 1_000_000, second / 1000, count[0] == scan && again == scan);
+    }
+}
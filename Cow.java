@@ -0,0 +1,11 @@
+class Cow extends Animal{
+    @Override
+    void sound() {
+        System.out.println("Cow is mooing");
+    }
+
+    @Override
+    int soundLevel() {
+        return 70;
+    }
+}
@@ -0,0 +1,16 @@
+class Dog extends Animal{
+    @Override
+    void sound() {
+//        super.sound();//super keyword is like this keyword It refers to the parent method or constructor.
+        System.out.println("Dog in barking");
+    }
+
+    @Override
+    int soundLevel() {
+        return 80;
+    }
+
+    void run(){
+     System.out.println("The dog is running");
+ }
+}
@@ -0,0 +1,11 @@
+class Duck extends Animal{
+    @Override
+    void sound() {
+        System.out.println("Duck is quacking");
+    }
+
+    @Override
+    int soundLevel() {
+        return 60;
+    }
+}
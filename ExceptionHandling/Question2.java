@@ -9,6 +9,15 @@ public class Question2 {
             System.out.println("An exception occured");
         }
         System.out.println("Done");
+
+        //the same check without letting the JVM create an ArithmeticException, see Validation and Result
+        Result<Integer, ValidationException> result = Validation.divide(10, 0);
+        if(result.isOk()){
+            System.out.println("Division worked, result " + result.value());
+        } else {
+            //nothing was thrown here, the error came back as a value
+            System.out.println("Division failed: " + result.error().getMessage());
+        }
     }
 }
 
@@ -0,0 +1,75 @@
+package ExceptionHandling;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/*
+ * Result is the other way to report a failure: instead of throwing, the method returns either a value (ok)
+ * or an error (err), and the caller has to look at it. No stack walk, no jumping through catch blocks,
+ * the failure is just a normal return value.
+ *
+ *     Result<Integer, ValidationException> r = Validation.divide(10, 0);
+ *     if(r.isOk()) use(r.value()); else System.out.println(r.error().getMessage());
+ */
+public final class Result<T, E> {
+    private final T value;
+    private final E error;
+
+    private Result(T value, E error){
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T, E> Result<T, E> ok(T value){
+        return new Result<>(value, null);
+    }
+
+    public static <T, E> Result<T, E> err(E error){
+        return new Result<>(null, Objects.requireNonNull(error, "error"));
+    }
+
+    public boolean isOk(){
+        return error == null;
+    }
+
+    public T value(){
+        if(error != null){
+            throw new IllegalStateException("result is an error: " + error);
+        }
+        return value;
+    }
+
+    public E error(){
+        if(error == null){
+            throw new IllegalStateException("result is ok");
+        }
+        return error;
+    }
+
+    public T orElse(T other){
+        return error == null ? value : other;
+    }
+
+    //back to the exception world when the caller wants it, e.g. r.orElseThrow(e -> e)
+    public <X extends Throwable> T orElseThrow(Function<? super E, ? extends X> toException) throws X {
+        if(error != null){
+            throw toException.apply(error);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <U> Result<U, E> map(Function<? super T, ? extends U> f){
+        return error == null ? ok(f.apply(value)) : (Result<U, E>) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <U> Result<U, E> flatMap(Function<? super T, Result<U, E>> f){
+        return error == null ? f.apply(value) : (Result<U, E>) this;
+    }
+
+    @Override
+    public String toString(){
+        return error == null ? "Ok(" + value + ")" : "Err(" + error + ")";
+    }
+}
@@ -0,0 +1,41 @@
+package ExceptionHandling;
+
+/*
+ * The checks from Question2 (10/0) and Question3 (arr[4]) written for a hot path, in both styles:
+ *  - xxxOrThrow throws one of the preallocated ValidationException objects
+ *  - the others return a Result
+ * Both look before they act, so the JVM never has to create an ArithmeticException or
+ * ArrayIndexOutOfBoundsException (with its stack trace).
+ */
+public final class Validation {
+    private Validation(){
+    }
+
+    public static int divideOrThrow(int a, int b){
+        if(b == 0){
+            throw ValidationException.DIVIDE_BY_ZERO;
+        }
+        return a / b;
+    }
+
+    public static Result<Integer, ValidationException> divide(int a, int b){
+        if(b == 0){
+            return Result.err(ValidationException.DIVIDE_BY_ZERO);
+        }
+        return Result.ok(a / b);
+    }
+
+    public static int elementOrThrow(int[] arr, int index){
+        if(index < 0 || index >= arr.length){
+            throw ValidationException.INDEX_OUT_OF_RANGE;
+        }
+        return arr[index];
+    }
+
+    public static Result<Integer, ValidationException> element(int[] arr, int index){
+        if(index < 0 || index >= arr.length){
+            return Result.err(ValidationException.INDEX_OUT_OF_RANGE);
+        }
+        return Result.ok(arr[index]);
+    }
+}
@@ -0,0 +1,33 @@
+package ExceptionHandling;
+
+/*
+ * Why is throwing an exception slow? Not the throw itself, it is the constructor: new Exception() calls
+ * fillInStackTrace(), which walks the whole stack of the thread and saves every frame. The deeper the call,
+ * the more it costs. (The JVM does something similar on its own for 10/0 or arr[4] in very hot code,
+ * -XX:+OmitStackTraceInFastThrow, that is why such exceptions sometimes come without a stack trace.)
+ *
+ * This exception is "stackless": the 4 argument RuntimeException constructor with writableStackTrace = false
+ * skips the stack walk, and enableSuppression = false means addSuppressed() does nothing.
+ * Because it has no state that changes, one object can be created once and thrown again and again
+ * (the constants below), then a failed validation costs no allocation at all.
+ *
+ * The price: getStackTrace() is empty, so the log does not say where it was thrown. Use it for expected
+ * failures (bad input) that the caller handles, not for bugs.
+ */
+public class ValidationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final ValidationException DIVIDE_BY_ZERO = new ValidationException("divide by zero");
+    public static final ValidationException INDEX_OUT_OF_RANGE = new ValidationException("index out of range");
+    public static final ValidationException NEGATIVE_VALUE = new ValidationException("negative value");
+    public static final ValidationException EMPTY_VALUE = new ValidationException("empty value");
+
+    public ValidationException(String message){
+        super(message, null, false, false);
+    }
+
+    //a domain exception with a cause, still without the stack walk
+    public ValidationException(String message, Throwable cause){
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,131 @@
+package ExecuterService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Thread pool that chooses its own size instead of a hard coded 8.
+ *
+ * For every task it measures wall time and CPU time of the worker thread. wait = wall - cpu is the time the
+ * task was blocked (sleep, network, mail relay...). The well known sizing rule is
+ *     threads = cores * targetCpuUse * (1 + wait / compute)
+ * e.g. CertificationSender: 2s sleep and ~0 cpu -> many threads, a pure calculation -> about one thread per core.
+ * The ratio is a moving average (new tasks weigh more), and every 50ms the pool is resized straight to the new
+ * target, so if the relay becomes slower the pool grows, and it shrinks again when the relay is fast.
+ * The pool only grows while tasks are waiting in the queue and the cpu is not full yet: wall - cpu also counts
+ * the time a thread was ready but waited for a busy cpu (run queue), and more threads cannot fix that.
+ * "Full" = the tasks used at least targetCpuUse of all cores since the last resize.
+ */
+public class AdaptiveExecutor extends ThreadPoolExecutor {
+    private static final double SMOOTHING = 0.2; // weight of the newest task in the moving average
+    private static final long RESIZE_MILLIS = 50;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final double targetCpuUse;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final ThreadLocal<long[]> startTimes = ThreadLocal.withInitial(()-> new long[2]);
+    private final ScheduledExecutorService resizer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pool-resizer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    //both in nanoseconds, guarded by "this"
+    private double avgWait;
+    private double avgCpu;
+    private boolean measured;
+    //cpu used by finished tasks since the last resize, and when that was
+    private long cpuSinceResize;
+    private long lastResize = System.nanoTime();
+
+    public AdaptiveExecutor(int minThreads, int maxThreads, double targetCpuUse){
+        super(minThreads, minThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        if(minThreads <= 0 || maxThreads < minThreads){
+            throw new IllegalArgumentException("need 0 < minThreads <= maxThreads: " + minThreads + ", " + maxThreads);
+        }
+        if(targetCpuUse <= 0 || targetCpuUse > 1){
+            throw new IllegalArgumentException("targetCpuUse must be in (0, 1]: " + targetCpuUse);
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.targetCpuUse = targetCpuUse;
+        resizer.scheduleWithFixedDelay(this::resize, RESIZE_MILLIS, RESIZE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    //current wait / compute ratio, 0 until the first task has finished.
+    public synchronized double waitToComputeRatio(){
+        return measured ? avgWait / Math.max(avgCpu, 1) : 0;
+    }
+
+    public int targetSize(){
+        long target = Math.round(cores * targetCpuUse * (1 + waitToComputeRatio()));
+        return (int) Math.max(minThreads, Math.min(maxThreads, target));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r){
+        long[] start = startTimes.get();
+        start[0] = System.nanoTime();
+        start[1] = cpuTime();
+        super.beforeExecute(t, r);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t){
+        super.afterExecute(r, t);
+        long[] start = startTimes.get();
+        long wall = System.nanoTime() - start[0];
+        long cpu = Math.min(wall, cpuTime() - start[1]);
+        synchronized (this){
+            cpuSinceResize += cpu;
+            if(!measured){
+                avgWait = wall - cpu;
+                avgCpu = cpu;
+                measured = true;
+            } else {
+                avgWait += SMOOTHING * ((wall - cpu) - avgWait);
+                avgCpu += SMOOTHING * (cpu - avgCpu);
+            }
+        }
+    }
+
+    @Override
+    protected void terminated(){
+        resizer.shutdownNow();
+        super.terminated();
+    }
+
+    private void resize(){
+        double cpuUse;
+        synchronized (this){
+            long now = System.nanoTime();
+            cpuUse = cpuSinceResize / ((double) (now - lastResize) * cores);
+            cpuSinceResize = 0;
+            lastResize = now;
+        }
+        int target = targetSize();
+        int current = getCorePoolSize();
+        if(target > current && (getQueue().isEmpty() || cpuUse >= targetCpuUse)){
+            return; // nothing is waiting, or the cpu is already full: more threads would not help
+        }
+        if(target > current){
+            setMaximumPoolSize(target); // max must never be below core
+            setCorePoolSize(target);
+        } else if(target < current){
+            setCorePoolSize(target);
+            setMaximumPoolSize(target);
+        }
+    }
+
+    //with no cpu time support every task looks 100% cpu, so the pool stays at cores * targetCpuUse.
+    private static long cpuTime(){
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -1,18 +1,71 @@
 package ExecuterService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/*
+ * Run: java ExecuterService.App [fixed|virtual] [students|file] [limit]
+ *   fixed   -> 8 pool threads, 12 students take 2 rounds of 2s = ~4s (default)
+ *   virtual -> one virtual thread per certificate, at most "limit" sends at the same time (default 1000)
+ *              so the mail relay is never hit by more than limit connections.
+ *   students -> a number makes that many students, anything else is a file with one student name per line.
+ *              The file is read line by line while sending, so it can have millions of rows.
+ * Progress (queue depth, in flight, latency, throughput) is printed every second.
+ */
 public class App {
-    public static void main(String[] args) {
-        ExecutorService service = Executors.newFixedThreadPool(8);
+    public static void main(String[] args) throws InterruptedException, IOException {
+        boolean virtual = args.length > 0 && args[0].equals("virtual");
         String[]arr = {"Amit", "Priya", "Rahul", "Sneha", "Vikram", "Neha", "Arjun", "Kiran", "Rohit", "Anjali", "Siddharth", "Pooja"
         };
+        int limit = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        if(args.length > 1 && args[1].isEmpty()){
+            throw new IllegalArgumentException("students must be a number or a file name, not empty");
+        }
 
-        for(String Student: arr){
-            CertificationSender task = new CertificationSender(Student);
-            service.submit(task);
+        ExecutorService service = virtual ? VirtualThreads.newPerTaskExecutor() : Executors.newFixedThreadPool(8);
+        if(virtual && !VirtualThreads.isSupported()){
+            System.out.println("Virtual threads need Java 21+, using one platform thread per send instead");
+        }
+        //fixed pool: 8 running + queue of limit waiting. virtual: limit running at the same time.
+        //When full, submit waits here, so the student list is never all in memory as tasks.
+        Dispatcher dispatcher = new Dispatcher(service, virtual ? limit : 8 + limit, Dispatcher.WhenFull.BLOCK);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(()-> System.out.println("Progress: " + dispatcher.metrics()), 1, 1, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        Dispatcher.Summary summary;
+        //progress is not a daemon thread, it must stop on every path or the JVM never exits
+        try{
+            //a number needs at least one digit ("" is all digits too, and parseInt("") throws)
+            if(args.length > 1 && (args[1].isEmpty() || !args[1].chars().allMatch(Character::isDigit))){
+                try(BufferedReader reader = Files.newBufferedReader(Path.of(args[1]))){
+                    String Student;
+                    while((Student = reader.readLine()) != null){
+                        if(!Student.isBlank()){
+                            dispatcher.submit(new CertificationSender(Student.trim()));
+                        }
+                    }
+                }
+            }
+            else {
+                int count = args.length > 1 ? Integer.parseInt(args[1]) : arr.length;
+                for(int i = 0; i < count; i++){
+                    //more students than names: repeat the names with a number, e.g. Amit-13
+                    String Student = count == arr.length ? arr[i] : arr[i % arr.length] + "-" + (i + 1);
+                    dispatcher.submit(new CertificationSender(Student));
+                }
+            }
+            summary = dispatcher.awaitCompletion(1, TimeUnit.DAYS);
+        } finally {
+            progress.shutdownNow();
+            service.shutdown(); // if submit failed (e.g. missing file) awaitCompletion never ran
         }
-        service.shutdown();
+        System.out.println("Done in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms: " + summary);
+        System.out.println("Final: " + dispatcher.metrics());
     }
 }
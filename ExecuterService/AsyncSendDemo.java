@@ -0,0 +1,60 @@
+package ExecuterService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Sends 300 certificates through AsyncSender to a flaky relay:
+ * most sends take 20-40ms, 4% take 2s (slow relay), 3% fail at once, 1% hang forever.
+ * Run once without and once with hedging and compare p50/p99/max of the whole send.
+ */
+public class AsyncSendDemo {
+    private static final int STUDENTS = 300;
+
+    public static void main(String[] args) throws InterruptedException {
+        run(false);
+        run(true);
+    }
+
+    private static void run(boolean hedging) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        AsyncSender.Transport flakyRelay = stdName -> {
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            if(roll < 3){
+                throw new IllegalStateException("relay refused connection");
+            }
+            Thread.sleep(roll < 4 ? Long.MAX_VALUE : roll < 8 ? 2000 : 20 + roll % 20);
+        };
+        List<CompletableFuture<AsyncSender.SendResult>> results = new ArrayList<>();
+        int failed = 0;
+        long[] latencies = new long[STUDENTS];
+        int n = 0;
+        try(AsyncSender sender = new AsyncSender(flakyRelay, pool, 1000, 3, hedging)){
+            for(int i = 0; i < STUDENTS; i++){
+                results.add(sender.send("Student-" + i, 5000));
+                Thread.sleep(5); // students arrive over time, so the p95 is known for most of them
+            }
+            for(CompletableFuture<AsyncSender.SendResult> r: results){
+                try{
+                    latencies[n++] = r.join().latencyMillis;
+                } catch (RuntimeException e) {
+                    failed++;
+                    n--;
+                }
+            }
+        }
+        pool.shutdownNow();
+        if(n == 0){
+            System.out.printf("hedging=%-5s sent=0 failed=%d, no latencies to show%n", hedging, failed);
+            return;
+        }
+        Arrays.sort(latencies, 0, n);
+        System.out.printf("hedging=%-5s sent=%d failed=%d p50=%dms p99=%dms max=%dms%n", hedging, n, failed,
+                latencies[n / 2], latencies[Math.min(n - 1, n * 99 / 100)], latencies[n - 1]);
+    }
+}
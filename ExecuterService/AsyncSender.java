@@ -0,0 +1,180 @@
+package ExecuterService;
+
+import Advance_Multithreading.LatencyHistogram;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Non blocking way to send certificates: send() returns a CompletableFuture<SendResult> at once.
+ *  - deadline: the whole send (all attempts) must finish in time, else the future fails with TimeoutException.
+ *  - attempt timeout: an attempt that hangs is cancelled (its thread is interrupted) so it does not hold a pool thread.
+ *  - retries: a failed attempt is tried again after 100ms, 200ms, 400ms... while the deadline allows.
+ *  - hedging: if an attempt is still running after the p95 latency of earlier sends, a second attempt is started
+ *    and the first one to succeed wins, the other is cancelled. This cuts the slow tail when the relay is flaky.
+ */
+public class AsyncSender implements AutoCloseable {
+    private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+
+    //the blocking send that is wrapped, e.g. name -> new CertificationSender(name).send()
+    public interface Transport {
+        void send(String stdName) throws Exception;
+    }
+
+    public static class SendResult {
+        public final String stdName;
+        public final int attempts;
+        public final boolean wonByHedge;
+        public final long latencyMillis;
+
+        SendResult(String stdName, int attempts, boolean wonByHedge, long latencyMillis){
+            this.stdName = stdName;
+            this.attempts = attempts;
+            this.wonByHedge = wonByHedge;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public String toString(){
+            return stdName + " sent in " + latencyMillis + "ms after " + attempts + " attempt(s)" + (wonByHedge ? " (hedge won)" : "");
+        }
+    }
+
+    private final Transport transport;
+    private final ExecutorService executor;
+    private final long attemptTimeoutMillis;
+    private final int maxRetries;
+    private final boolean hedging;
+    private final LatencyHistogram latency = new LatencyHistogram(); // successful attempts, in micros
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "async-sender-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AsyncSender(Transport transport, ExecutorService executor, long attemptTimeoutMillis, int maxRetries, boolean hedging){
+        this.transport = transport;
+        this.executor = executor;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.hedging = hedging;
+    }
+
+    public CompletableFuture<SendResult> send(String stdName, long deadlineMillis){
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        CompletableFuture<SendResult> result = new CompletableFuture<>();
+        tryOnce(stdName, start, deadline, 0, result);
+        return result.orTimeout(deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //p95 of successful attempts so far, -1 while there are not enough samples.
+    public long p95Millis(){
+        synchronized (latency){
+            return latency.count() < MIN_SAMPLES_FOR_HEDGING ? -1 : TimeUnit.MICROSECONDS.toMillis(latency.percentile(95));
+        }
+    }
+
+    @Override
+    public void close(){
+        timer.shutdownNow();
+    }
+
+    private void tryOnce(String stdName, long start, long deadline, int retry, CompletableFuture<SendResult> result){
+        if(result.isDone()){
+            return; // deadline passed, nobody is waiting any more
+        }
+        long timeout = Math.min(attemptTimeoutMillis, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        CompletableFuture<Void> first = attempt(stdName, timeout);
+        CompletableFuture<Void> hedge = new CompletableFuture<>();
+        AtomicBoolean hedged = new AtomicBoolean();
+        long p95 = hedging ? p95Millis() : -1;
+        if(p95 >= 0 && p95 < timeout){
+            timer.schedule(()->{
+                if(!first.isDone() && hedged.compareAndSet(false, true)){
+                    CompletableFuture<Void> second = attempt(stdName, timeout - p95);
+                    second.whenComplete((v, e)-> complete(hedge, e));
+                    hedge.whenComplete((v, e)-> second.cancel(true)); // first won: stop the hedge too
+                }
+            }, p95, TimeUnit.MILLISECONDS);
+        }
+
+        //first success of the two wins. The pair fails only when the first failed and the hedge was not started or failed too.
+        first.whenComplete((v, e)->{
+            if(e == null){
+                finish(result, stdName, start, retry, false, hedge);
+            } else if(!hedged.compareAndSet(false, true)){
+                hedge.whenComplete((v2, e2)-> {
+                    if(e2 == null){
+                        finish(result, stdName, start, retry, true, first);
+                    } else {
+                        retryLater(stdName, start, deadline, retry, result, e2);
+                    }
+                });
+            } else {
+                retryLater(stdName, start, deadline, retry, result, e);
+            }
+        });
+        hedge.whenComplete((v, e)->{
+            if(e == null){
+                finish(result, stdName, start, retry, true, first);
+            }
+        });
+    }
+
+    private void finish(CompletableFuture<SendResult> result, String stdName, long start, int retry, boolean byHedge,
+                        CompletableFuture<Void> loser){
+        loser.cancel(true);
+        result.complete(new SendResult(stdName, retry + 1, byHedge, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    private void retryLater(String stdName, long start, long deadline, int retry, CompletableFuture<SendResult> result, Throwable error){
+        long backoff = 100L << Math.min(retry, 20);
+        if(retry >= maxRetries || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff) >= deadline){
+            result.completeExceptionally(error);
+            return;
+        }
+        timer.schedule(()-> tryOnce(stdName, start, deadline, retry + 1, result), backoff, TimeUnit.MILLISECONDS);
+    }
+
+    //one call of the transport on the executor, cancelled (interrupted) if it takes longer than timeoutMillis.
+    private CompletableFuture<Void> attempt(String stdName, long timeoutMillis){
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if(timeoutMillis <= 0){
+            done.completeExceptionally(new TimeoutException("no time left for " + stdName));
+            return done;
+        }
+        long t0 = System.nanoTime();
+        Future<?> task = executor.submit(()->{
+            try{
+                transport.send(stdName);
+                synchronized (latency){
+                    latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - t0));
+                }
+                done.complete(null);
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+            }
+        });
+        done.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((v, e)->{
+            if(e != null){
+                task.cancel(true); // timed out or lost to the hedge: interrupt the blocked send
+            }
+        });
+        return done;
+    }
+
+    private static void complete(CompletableFuture<Void> future, Throwable error){
+        if(error == null){
+            future.complete(null);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+}
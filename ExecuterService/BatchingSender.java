@@ -0,0 +1,202 @@
+package ExecuterService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Pipeline stage between CertificationSender and the mail relay.
+ * Certificates are put in a queue, one sender thread takes them out in batches and sends every batch through
+ * ONE smtp session. A batch is closed when it has batchSize certificates or when lingerMillis has passed since
+ * its first certificate arrived, whichever comes first (so a slow trickle of students still goes out quickly).
+ *
+ * If the session breaks, only the certificates of the batch that were not sent yet are retried, in a new session,
+ * with backoff 100ms, 200ms, 400ms... Recipients refused by the relay are not retried, they are reported as rejected.
+ * Note: if the connection dies just after the relay accepted a message, that message can be sent twice (at least once).
+ * A RuntimeException while sending ends only that batch: what was not sent yet is reported as failed, with the error.
+ */
+public class BatchingSender implements AutoCloseable {
+    private static final String END = new String("end-of-stream"); // own instance so it can be compared with ==
+    private static final long BACKOFF_MILLIS = 100;
+
+    //what happened to one batch, given to the listener after the batch is done.
+    public static class BatchReport {
+        public final int batchNo;
+        public int attempts;
+        public final List<String> sent = new ArrayList<>();
+        public final List<String> rejected = new ArrayList<>(); // refused by the relay
+        public final List<String> failed = new ArrayList<>();   // still unsent after all retries
+        Exception lastError; // IOException from the relay, or a RuntimeException that ended the batch
+
+        BatchReport(int batchNo){
+            this.batchNo = batchNo;
+        }
+
+        public Exception lastError(){
+            return lastError;
+        }
+
+        @Override
+        public String toString(){
+            return "batch " + batchNo + ": sent=" + sent.size() + " rejected=" + rejected + " failed=" + failed
+                    + " attempts=" + attempts + (lastError == null ? "" : " error=" + lastError.getMessage());
+        }
+    }
+
+    public interface Listener {
+        void onBatch(BatchReport report);
+    }
+
+    private final SmtpRelay relay;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxRetries;
+    private final Listener listener;
+    private final BlockingQueue<String> queue;
+    private final Thread worker;
+    //submit() checks closed and puts into the queue under this lock, so nothing can land behind the END marker
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private boolean closed;
+    private int batches;
+    //batches whose report the listener threw on, see listenerFailures()
+    private volatile int listenerFailures;
+    private volatile RuntimeException lastListenerError;
+
+    public BatchingSender(SmtpRelay relay, int batchSize, long lingerMillis, int maxRetries, Listener listener){
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.relay = relay;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxRetries = maxRetries;
+        this.listener = listener;
+        this.queue = new LinkedBlockingQueue<>(batchSize * 4); // bounded, submit() waits if the relay cannot keep up
+        this.worker = new Thread(this::sendLoop, "certificate-batcher");
+        worker.start();
+    }
+
+    public void submit(String stdName) throws InterruptedException {
+        stateLock.lockInterruptibly();
+        try{
+            if(closed){
+                throw new IllegalStateException("sender is closed");
+            }
+            queue.put(stdName); // may wait for the worker, which never needs stateLock
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    //how many batch reports the listener threw on; those batches were sent but the caller may not have counted them
+    public int listenerFailures(){
+        return listenerFailures;
+    }
+
+    public RuntimeException lastListenerError(){
+        return lastListenerError;
+    }
+
+    //sends what is still queued and waits for the last batch. An interrupt does not stop the waiting,
+    //the flag is set again at the end (so close() fits in try-with-resources without throwing InterruptedException).
+    @Override
+    public void close(){
+        boolean interrupted = false;
+        stateLock.lock();
+        try{
+            if(closed){
+                return;
+            }
+            closed = true;
+            while(true){
+                try{
+                    queue.put(END);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            stateLock.unlock();
+        }
+        while(worker.isAlive()){
+            try{
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendLoop(){
+        List<String> batch = new ArrayList<>(batchSize);
+        boolean end = false;
+        try{
+            while(!end){
+                String first = queue.take();
+                if(first == END){
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while(batch.size() < batchSize){
+                    long wait = deadline - System.nanoTime();
+                    String next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if(next == null){
+                        break; // linger time is over
+                    }
+                    if(next == END){
+                        end = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+                BatchReport report = send(batch);
+                try{
+                    listener.onBatch(report);
+                } catch (RuntimeException e) {
+                    //a broken listener must not stop the sender, later batches still go out
+                    lastListenerError = e;
+                    listenerFailures++; // only the worker thread writes it
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BatchReport send(List<String> batch) throws InterruptedException {
+        BatchReport report = new BatchReport(++batches);
+        int next = 0;
+        while(next < batch.size() && report.attempts <= maxRetries){
+            if(report.attempts > 0){
+                Thread.sleep(BACKOFF_MILLIS << (report.attempts - 1));
+            }
+            report.attempts++;
+            try(SmtpRelay.Session session = relay.open()){
+                while(next < batch.size()){
+                    String stdName = batch.get(next);
+                    (session.send(stdName) ? report.sent : report.rejected).add(stdName);
+                    next++;
+                }
+            } catch (IOException e) {
+                if(next < batch.size()){
+                    report.lastError = e; // a failed QUIT after the last certificate does not matter
+                }
+            } catch (RuntimeException e) {
+                report.lastError = e; // a bug, not a network problem, retrying would fail the same way
+                break;
+            }
+        }
+        report.failed.addAll(batch.subList(next, batch.size()));
+        return report;
+    }
+}
@@ -0,0 +1,65 @@
+package ExecuterService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs CertificationSender through the BatchingSender against the in-process SmtpStandIn and checks the result.
+ *   1. one session per certificate (batch size 1), the old way
+ *   2. batches of 200 with 50ms linger
+ *   3. batches with a relay that drops sessions and refuses some recipients: every student must end up
+ *      in exactly one of sent / rejected / failed.
+ * Prints messages/sec and sessions opened for each run.
+ */
+public class BulkSendDemo {
+    private static final int STUDENTS = 2000;
+    private static final long SESSION_DELAY_MILLIS = 5; // cost of opening a connection on the relay
+
+    public static void main(String[] args) throws Exception {
+        run("one session per certificate", 1, 0, 0, 0);
+        run("batched", 200, 50, 0, 0);
+        run("batched, flaky relay", 200, 50, 3, 7);
+    }
+
+    private static void run(String name, int batchSize, long lingerMillis, int droppedSessions, int rejectEvery) throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try(SmtpStandIn relay = new SmtpStandIn(address -> rejectEvery > 0 && number(address) % rejectEvery == 0, SESSION_DELAY_MILLIS)){
+            relay.dropNextSessions(droppedSessions);
+            BatchingSender batcher = new BatchingSender(new SmtpRelay("localhost", relay.port(), 5000), batchSize, lingerMillis, 3,
+                    report -> {
+                        sent.addAndGet(report.sent.size());
+                        rejected.addAndGet(report.rejected.size());
+                        failed.addAndGet(report.failed.size());
+                        if(!report.failed.isEmpty() || report.attempts > 1){
+                            System.out.println("  " + report);
+                        }
+                    });
+            ExecutorService service = Executors.newFixedThreadPool(8);
+            long start = System.nanoTime();
+            for(int i = 1; i <= STUDENTS; i++){
+                service.submit(new CertificationSender("Student-" + i, batcher));
+            }
+            service.shutdown();
+            service.awaitTermination(1, TimeUnit.MINUTES);
+            batcher.close();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if(batcher.listenerFailures() > 0){
+                System.out.println("  listener failed on " + batcher.listenerFailures() + " batches: " + batcher.lastListenerError());
+            }
+
+            boolean ok = sent.get() + rejected.get() + failed.get() == STUDENTS && relay.messagesAccepted() >= sent.get()
+                    && batcher.listenerFailures() == 0;
+            System.out.printf("%-28s messages/sec=%,.0f sessions=%d sent=%d rejected=%d failed=%d %s%n", name,
+                    relay.messagesAccepted() / seconds, relay.sessionsOpened(), sent.get(), rejected.get(), failed.get(),
+                    ok ? "OK" : "MISMATCH");
+        }
+    }
+
+    private static int number(String address){
+        return Integer.parseInt(address.substring(address.indexOf('-') + 1, address.indexOf('@')));
+    }
+}
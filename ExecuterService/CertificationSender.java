@@ -2,19 +2,36 @@ package ExecuterService;
 
 public class CertificationSender implements Runnable{
     private final String stdName;
+    //when set, run() only hands the certificate to the batcher and the real send happens in bulk.
+    private final BatchingSender batcher;
    public CertificationSender(String stdName){
+       this(stdName, null);
+   }
+   public CertificationSender(String stdName, BatchingSender batcher){
        this.stdName = stdName;
+       this.batcher = batcher;
    }
     @Override
     public void run() {
-        System.out.println("Sending Certificate to: "+stdName+" by "+ Thread.currentThread().getName());
+        if(batcher != null){
+            try{
+                batcher.submit(stdName);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
         try{
-            Thread.sleep(2000);
+            send();
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
-        finally {
-            System.out.println("Certificate has been sent successfully to: "+stdName+" by "+ Thread.currentThread().getName());
-        }
+    }
+
+    //the send itself, InterruptedException is passed on so a caller with a timeout (AsyncSender) can stop it.
+    public void send() throws InterruptedException {
+        System.out.println("Sending Certificate to: "+stdName+" by "+ Thread.currentThread().getName());
+        Thread.sleep(2000);
+        System.out.println("Certificate has been sent successfully to: "+stdName+" by "+ Thread.currentThread().getName());
     }
 }
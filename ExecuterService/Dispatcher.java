@@ -0,0 +1,152 @@
+package ExecuterService;
+
+import Advance_Multithreading.LatencyHistogram;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Wraps an ExecutorService so that:
+ *  - at most maxPending tasks are waiting or running at any time (memory stays constant even for millions of students).
+ *    When it is full, submit() either waits (BLOCK) or drops the task and counts it (SHED).
+ *  - every task is counted as succeeded or failed, nothing is lost like with an ignored Future.
+ *  - metrics() can be called at any time for queue depth, in flight, latency percentiles and throughput.
+ */
+public class Dispatcher {
+    public enum WhenFull { BLOCK, SHED }
+
+    public static class Summary {
+        public final long succeeded;
+        public final long failed;
+        public final long shed;
+
+        Summary(long succeeded, long failed, long shed){
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.shed = shed;
+        }
+
+        @Override
+        public String toString(){
+            return "succeeded=" + succeeded + " failed=" + failed + " shed=" + shed;
+        }
+    }
+
+    public static class Metrics {
+        public final long queueDepth;
+        public final long inFlight;
+        public final long completed;
+        public final long failed;
+        public final long shed;
+        public final double perSecond;
+        public final long p50Millis;
+        public final long p99Millis;
+        public final long maxMillis;
+        public final long p99QueueWaitMillis;
+
+        Metrics(long queueDepth, long inFlight, long completed, long failed, long shed, double perSecond,
+                LatencyHistogram latency, LatencyHistogram queueWait){
+            this.queueDepth = queueDepth;
+            this.inFlight = inFlight;
+            this.completed = completed;
+            this.failed = failed;
+            this.shed = shed;
+            this.perSecond = perSecond;
+            this.p50Millis = TimeUnit.MICROSECONDS.toMillis(latency.percentile(50));
+            this.p99Millis = TimeUnit.MICROSECONDS.toMillis(latency.percentile(99));
+            this.maxMillis = TimeUnit.MICROSECONDS.toMillis(latency.max());
+            this.p99QueueWaitMillis = TimeUnit.MICROSECONDS.toMillis(queueWait.percentile(99));
+        }
+
+        @Override
+        public String toString(){
+            return String.format("queued=%d inFlight=%d done=%d failed=%d shed=%d tasks/sec=%.1f latency p50=%dms p99=%dms max=%dms queueWait p99=%dms",
+                    queueDepth, inFlight, completed, failed, shed, perSecond, p50Millis, p99Millis, maxMillis, p99QueueWaitMillis);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final WhenFull whenFull;
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    //histograms are in microseconds, guarded by their own lock (tasks take milliseconds so the lock is not busy)
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    public Dispatcher(ExecutorService executor, int maxPending, WhenFull whenFull){
+        if(maxPending <= 0){
+            throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        }
+        this.executor = executor;
+        this.slots = new Semaphore(maxPending);
+        this.whenFull = whenFull;
+    }
+
+    //returns false when the task was shed because the dispatcher is full.
+    public boolean submit(Runnable task) throws InterruptedException {
+        if(whenFull == WhenFull.BLOCK){
+            slots.acquire();
+        } else if(!slots.tryAcquire()){
+            shed.incrementAndGet();
+            return false;
+        }
+        long queuedAt = System.nanoTime();
+        submitted.incrementAndGet();
+        try{
+            executor.execute(()-> runTask(task, queuedAt));
+        } catch (RejectedExecutionException e) {
+            submitted.decrementAndGet();
+            slots.release();
+            throw e;
+        }
+        return true;
+    }
+
+    //stops accepting tasks, waits for the ones already submitted and returns how they ended.
+    public Summary awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        if(!executor.awaitTermination(timeout, unit)){
+            throw new IllegalStateException("tasks still running after " + timeout + " " + unit + ": " + metrics());
+        }
+        return new Summary(succeeded.get(), failed.get(), shed.get());
+    }
+
+    public Metrics metrics(){
+        long done = succeeded.get() + failed.get();
+        long running = started.get() - done;
+        long queued = submitted.get() - started.get();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        synchronized (latency){
+            return new Metrics(queued, running, done, failed.get(), shed.get(), done / seconds, latency, queueWait);
+        }
+    }
+
+    private void runTask(Runnable task, long queuedAt){
+        long startedAt = System.nanoTime();
+        started.incrementAndGet();
+        boolean ok = false;
+        try{
+            task.run();
+            ok = true;
+        } catch (RuntimeException e) {
+            System.out.println("Task failed: " + e);
+        } finally {
+            long end = System.nanoTime();
+            synchronized (latency){
+                latency.record(TimeUnit.NANOSECONDS.toMicros(end - startedAt));
+                queueWait.record(TimeUnit.NANOSECONDS.toMicros(startedAt - queuedAt));
+            }
+            (ok ? succeeded : failed).incrementAndGet();
+            slots.release();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ExecuterService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares fixed pools of 4/8/32/128 threads with the AdaptiveExecutor on three workloads:
+ *   cpu   -> every task computes for about 2ms
+ *   sleep -> every task sleeps 20ms, like waiting for the mail relay
+ *   mixed -> half of each, and in the middle of the run the sleep goes from 20ms to 60ms (relay gets slower)
+ * Prints tasks/sec and, for the adaptive pool, the largest size it reached.
+ */
+public class PoolSizeBenchmark {
+    private static final int TASKS = 2000;
+    private static volatile long sink; // keeps the JIT from removing the cpu work
+
+    public static void main(String[] args) throws InterruptedException {
+        int cpuLoop = calibrate();
+        for(String workload: new String[]{"cpu", "sleep", "mixed"}){
+            for(int size: new int[]{4, 8, 32, 128}){
+                ExecutorService pool = Executors.newFixedThreadPool(size);
+                System.out.printf("%-6s fixed(%d)%s tasks/sec=%,.0f%n", workload, size, size < 10 ? " " : "",
+                        run(pool, workload, cpuLoop));
+            }
+            AdaptiveExecutor adaptive = new AdaptiveExecutor(1, 512, 0.9);
+            double perSecond = run(adaptive, workload, cpuLoop);
+            System.out.printf("%-6s adaptive  tasks/sec=%,.0f (grew to %d threads, wait/compute %.1f)%n",
+                    workload, perSecond, adaptive.getLargestPoolSize(), adaptive.waitToComputeRatio());
+        }
+    }
+
+    private static double run(ExecutorService pool, String workload, int cpuLoop) throws InterruptedException {
+        long start = System.nanoTime();
+        for(int i = 0; i < TASKS; i++){
+            boolean cpu = workload.equals("cpu") || (workload.equals("mixed") && i % 2 == 0);
+            long sleep = workload.equals("mixed") && i > TASKS / 2 ? 60 : 20;
+            pool.execute(()->{
+                if(cpu){
+                    compute(cpuLoop);
+                } else {
+                    try{
+                        Thread.sleep(sleep);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        return TASKS * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static void compute(int loops){
+        long x = 0;
+        for(int i = 0; i < loops; i++){
+            x = x * 31 + i;
+        }
+        sink = x;
+    }
+
+    //finds how many loop iterations take about 2ms on this machine. compute() is run first until the JIT has
+    //compiled it, measured in the interpreter 2ms would be only ~0.1ms later and the cpu tasks would be tiny.
+    private static int calibrate(){
+        for(int i = 0; i < 20_000; i++){
+            compute(1000);
+        }
+        int loops = 100_000;
+        while(true){
+            long t0 = System.nanoTime();
+            compute(loops);
+            if(System.nanoTime() - t0 >= 2_000_000 || loops > 1 << 30){
+                return loops;
+            }
+            loops *= 2;
+        }
+    }
+}
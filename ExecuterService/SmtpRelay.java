@@ -0,0 +1,111 @@
+package ExecuterService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Very small SMTP client. One Session = one TCP connection to the mail relay,
+ * and many certificates can be sent through it one after another (bulk send),
+ * so we pay connect + HELO once per batch instead of once per student.
+ */
+public class SmtpRelay {
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+
+    public SmtpRelay(String host, int port, int timeoutMillis){
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Session open() throws IOException {
+        return new Session();
+    }
+
+    public class Session implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final BufferedWriter out;
+
+        private Session() throws IOException {
+            socket = new Socket();
+            try{
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+                expect(220);
+                command("HELO certificates.local", 250);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        //returns false when the relay refuses this recipient, the session can still be used for the next one.
+        //IOException means the session itself is broken.
+        public boolean send(String stdName) throws IOException {
+            command("MAIL FROM:<certificates@school.example>", 250);
+            if(command("RCPT TO:<" + address(stdName) + ">") != 250){
+                command("RSET", 250);
+                return false;
+            }
+            command("DATA", 354);
+            out.write("Subject: Your certificate\r\n\r\nCongratulations " + stdName + ", your certificate is attached.\r\n.\r\n");
+            out.flush();
+            expect(250);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try{
+                if(!socket.isClosed()){
+                    command("QUIT", 221);
+                }
+            } finally {
+                socket.close();
+            }
+        }
+
+        private void command(String line, int expected) throws IOException {
+            int code = command(line);
+            if(code != expected){
+                throw new IOException("relay answered " + code + " to " + line);
+            }
+        }
+
+        private int command(String line) throws IOException {
+            out.write(line);
+            out.write("\r\n");
+            out.flush();
+            return reply();
+        }
+
+        private void expect(int expected) throws IOException {
+            int code = reply();
+            if(code != expected){
+                throw new IOException("relay answered " + code + ", expected " + expected);
+            }
+        }
+
+        private int reply() throws IOException {
+            String line = in.readLine();
+            if(line == null || line.length() < 3){
+                throw new IOException("relay closed the connection");
+            }
+            return Integer.parseInt(line.substring(0, 3));
+        }
+    }
+
+    static String address(String stdName){
+        return stdName.replace(' ', '.') + "@students.example";
+    }
+}
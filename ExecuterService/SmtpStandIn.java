@@ -0,0 +1,131 @@
+package ExecuterService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/*
+ * Fake mail relay that runs inside the same JVM on localhost, used to try the bulk sender without a real server.
+ * It counts sessions (connections) and accepted messages, and it can be told to misbehave:
+ *   reject        -> recipients for which the relay answers 550 (partial failure inside a batch)
+ *   dropSessions  -> the next N connections are closed right after the greeting (batch must be retried)
+ *   sessionDelay  -> time spent on every new connection, like TLS + login on a real relay
+ */
+public class SmtpStandIn implements AutoCloseable {
+    private final ServerSocket server;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Predicate<String> reject;
+    private final long sessionDelayMillis;
+    private final AtomicInteger dropSessions = new AtomicInteger();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicLong messages = new AtomicLong();
+    private final long started = System.nanoTime();
+
+    public SmtpStandIn(Predicate<String> reject, long sessionDelayMillis) throws IOException {
+        this.reject = reject;
+        this.sessionDelayMillis = sessionDelayMillis;
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "smtp-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port(){
+        return server.getLocalPort();
+    }
+
+    public void dropNextSessions(int count){
+        dropSessions.set(count);
+    }
+
+    public int sessionsOpened(){
+        return sessions.get();
+    }
+
+    public long messagesAccepted(){
+        return messages.get();
+    }
+
+    public double messagesPerSecond(){
+        return messages.get() * 1e9 / (System.nanoTime() - started);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop(){
+        while(!server.isClosed()){
+            try{
+                Socket socket = server.accept();
+                connections.execute(()-> serve(socket));
+            } catch (IOException e) {
+                return; // server closed
+            }
+        }
+    }
+
+    private void serve(Socket socket){
+        try(socket){
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+            sessions.incrementAndGet();
+            if(sessionDelayMillis > 0){
+                Thread.sleep(sessionDelayMillis);
+            }
+            reply(out, "220 stand-in ready");
+            if(dropSessions.getAndUpdate(n -> Math.max(0, n - 1)) > 0){
+                return;
+            }
+            boolean recipientOk = false;
+            String line;
+            while((line = in.readLine()) != null){
+                String upper = line.toUpperCase();
+                if(upper.startsWith("RCPT TO:")){
+                    String rcpt = line.substring(line.indexOf('<') + 1, line.lastIndexOf('>'));
+                    recipientOk = !reject.test(rcpt);
+                    reply(out, recipientOk ? "250 ok" : "550 mailbox unavailable");
+                } else if(upper.equals("DATA")){
+                    reply(out, "354 end with .");
+                    while((line = in.readLine()) != null && !line.equals(".")){
+                        // message body is ignored
+                    }
+                    if(recipientOk){
+                        messages.incrementAndGet();
+                    }
+                    recipientOk = false;
+                    reply(out, "250 queued");
+                } else if(upper.equals("QUIT")){
+                    reply(out, "221 bye");
+                    return;
+                } else if(upper.equals("RSET")){
+                    recipientOk = false;
+                    reply(out, "250 ok");
+                } else {
+                    reply(out, "250 ok"); // HELO, MAIL FROM
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // client went away or server stopped, nothing to do
+        }
+    }
+
+    private static void reply(BufferedWriter out, String line) throws IOException {
+        out.write(line);
+        out.write("\r\n");
+        out.flush();
+    }
+}
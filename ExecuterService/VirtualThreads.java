@@ -0,0 +1,39 @@
+package ExecuterService;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Virtual threads (Java 21+) are very cheap threads managed by the JVM. When a virtual thread blocks
+ * (sleep, socket, ...) the JVM parks it and the carrier (real OS) thread runs another one,
+ * so 100k blocking sends can all wait at the same time instead of 8 at a time.
+ *
+ * The method is looked up by reflection so the project still compiles and runs on older JDKs,
+ * where we fall back to a cached pool (one platform thread per running task).
+ */
+public class VirtualThreads {
+    public static boolean isSupported(){
+        return factoryMethod() != null;
+    }
+
+    public static ExecutorService newPerTaskExecutor(){
+        Method factory = factoryMethod();
+        if(factory != null){
+            try{
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("could not create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    private static Method factoryMethod(){
+        try{
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+class Horse extends Animal{
+    @Override
+    void sound() {
+        System.out.println("Horse is neighing");
+    }
+
+    @Override
+    int soundLevel() {
+        return 75;
+    }
+}
@@ -0,0 +1,355 @@
+import Advance_Multithreading.BankAccount;
+import Advance_Multithreading.LatencyHistogram;
+import ExecuterService.VirtualThreads;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Load generator for ATM (AccountStore) and BankAccount, instead of calling them a few times by hand
+ * like Test.java and Driver.java do. Settings are key=value arguments:
+ *
+ *   target=atm|bank        what to drive                                   (atm)
+ *   threads=8              workers                                         (8)
+ *   virtual=true|false     workers on virtual threads, Java 21+ only, older Java falls back to platform threads
+ *   mode=closed|open       closed: a worker sends the next operation when the last one is done
+ *                          open: operations arrive on a fixed schedule (rate) whether the last one finished or not
+ *   rate=100000            operations per second over all workers, needed for open, optional pacing for closed
+ *   accounts=10000         number of accounts
+ *   skew=uniform|zipf      which accounts are used, zipf: a few hot accounts get most of the traffic
+ *   zipf=1.0               zipf exponent, bigger = more skewed
+ *   mix=read:90,withdraw:8,transfer:2    operation mix in percent
+ *   seconds=10 warmup=2    measured time and warm up time before it (not recorded)
+ *   report=path.json       write the JSON report there (default: print it)
+ *
+ * Latency (nanoseconds, LatencyHistogram):
+ *   service   time inside the call
+ *   response  time since the operation SHOULD have started. In open mode that is the scheduled time, so a stall
+ *             shows up in every operation that was waiting behind it (a late worker catches up on the schedule).
+ *             Paced closed mode does not catch up, after a slow operation the next one starts one interval
+ *             later; the operations that were never sent are added back with recordCorrected() (coordinated
+ *             omission correction). Only one of the two is used per mode, so no stall is counted twice.
+ *             Without a rate, closed mode has no schedule and response = service.
+ *
+ * ATM operations use an AccountStore with ATM objects on it (read = the lookup showBalance does, withdraw =
+ * ATM.withdraw, transfer = withdraw from one then deposit to the other). BankAccount operations are balance(),
+ * withdraw() (tryLock, skipped when busy) and BankAccount.transfer().
+ */
+public class LoadGenerator {
+    enum Op { READ, WITHDRAW, TRANSFER }
+
+    interface Target {
+        void run(Op op, int account, int other, int amount);
+    }
+
+    static final class AtmTarget implements Target {
+        final AccountStore store;
+        final ATM[] atms;
+        final String[] names;
+
+        AtmTarget(int accounts){
+            store = new AccountStore(accounts);
+            atms = new ATM[accounts];
+            names = new String[accounts];
+            for(int i = 0; i < accounts; i++){
+                names[i] = "Account" + i;
+                atms[i] = new ATM(store, names[i], 10_000_000);
+            }
+        }
+
+        public void run(Op op, int account, int other, int amount){
+            switch(op){
+                case READ:
+                    if(store.balance(names[account]) < 0){
+                        throw new IllegalStateException("missing account " + names[account]);
+                    }
+                    break;
+                case WITHDRAW:
+                    atms[account].withdraw(amount);
+                    break;
+                case TRANSFER:
+                    if(store.withdraw(account, amount * 100L)){
+                        store.deposit(other, amount * 100L);
+                    }
+                    break;
+            }
+        }
+    }
+
+    static final class BankTarget implements Target {
+        final BankAccount[] accounts;
+
+        BankTarget(int count){
+            accounts = new BankAccount[count];
+            for(int i = 0; i < count; i++){
+                accounts[i] = new BankAccount(1_000_000_000, 0, false);
+            }
+        }
+
+        public void run(Op op, int account, int other, int amount){
+            switch(op){
+                case READ:
+                    accounts[account].balance();
+                    break;
+                case WITHDRAW:
+                    accounts[account].withdraw("load", amount);
+                    break;
+                case TRANSFER:
+                    BankAccount.transfer(accounts[account], accounts[other], amount);
+                    break;
+            }
+        }
+    }
+
+    //zipf: account k (0 based) is picked with weight 1 / (k + 1)^s, sampled from the cumulative table
+    static final class Zipf {
+        final double[] cdf;
+
+        Zipf(int n, double s){
+            cdf = new double[n];
+            double sum = 0;
+            for(int k = 0; k < n; k++){
+                sum += 1 / Math.pow(k + 1, s);
+                cdf[k] = sum;
+            }
+            for(int k = 0; k < n; k++){
+                cdf[k] /= sum;
+            }
+        }
+
+        int next(ThreadLocalRandom random){
+            int i = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(cdf.length - 1, i >= 0 ? i : -i - 1);
+        }
+    }
+
+    //what one worker measured, merged at the end
+    static final class Stats {
+        final LatencyHistogram service = new LatencyHistogram();
+        final LatencyHistogram response = new LatencyHistogram();
+        final LatencyHistogram[] perOp = new LatencyHistogram[Op.values().length];
+
+        Stats(){
+            for(int i = 0; i < perOp.length; i++){
+                perOp[i] = new LatencyHistogram();
+            }
+        }
+
+        void merge(Stats other){
+            service.merge(other.service);
+            response.merge(other.response);
+            for(int i = 0; i < perOp.length; i++){
+                perOp[i].merge(other.perOp[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Map<String, String> conf = new HashMap<>(Map.of(
+                "target", "atm", "threads", "8", "virtual", "false", "mode", "closed", "rate", "0",
+                "accounts", "10000", "skew", "uniform", "zipf", "1.0", "mix", "read:90,withdraw:8,transfer:2"));
+        conf.put("seconds", "10");
+        conf.put("warmup", "2");
+        conf.put("report", "");
+        for(String arg: args){
+            int eq = arg.indexOf('=');
+            if(eq < 0 || !conf.containsKey(arg.substring(0, eq))){
+                throw new IllegalArgumentException("unknown setting: " + arg + ", known: " + conf.keySet());
+            }
+            conf.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        String targetName = conf.get("target");
+        int threads = Integer.parseInt(conf.get("threads"));
+        boolean virtual = Boolean.parseBoolean(conf.get("virtual"));
+        boolean open = conf.get("mode").equals("open");
+        double rate = Double.parseDouble(conf.get("rate"));
+        int accounts = Integer.parseInt(conf.get("accounts"));
+        boolean zipf = conf.get("skew").equals("zipf");
+        int[] mix = parseMix(conf.get("mix"));
+        long seconds = Long.parseLong(conf.get("seconds"));
+        long warmup = Long.parseLong(conf.get("warmup"));
+        if(open && rate <= 0){
+            throw new IllegalArgumentException("open mode needs rate=");
+        }
+        if(accounts < 2 || threads < 1){
+            throw new IllegalArgumentException("need at least 2 accounts and 1 thread");
+        }
+        if(!targetName.equals("atm") && !targetName.equals("bank")){
+            throw new IllegalArgumentException("target must be atm or bank: " + targetName);
+        }
+
+        Target target = targetName.equals("atm") ? new AtmTarget(accounts) : new BankTarget(accounts);
+        Zipf skew = zipf ? new Zipf(accounts, Double.parseDouble(conf.get("zipf"))) : null;
+        //time between two operations of ONE worker, 0 = as fast as possible
+        long interval = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // time to start all workers
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        Stats[] stats = new Stats[threads];
+        ExecutorService workers = virtual ? VirtualThreads.newPerTaskExecutor() : Executors.newFixedThreadPool(threads);
+        for(int w = 0; w < threads; w++){
+            Stats mine = stats[w] = new Stats();
+            //workers are spread over one interval, so a fixed rate does not arrive in bursts of "threads"
+            long first = start + (interval == 0 ? 0 : interval * w / threads);
+            workers.execute(() -> work(target, mine, skew, accounts, mix, open, interval, first, measureFrom, end));
+        }
+        workers.shutdown();
+        if(!workers.awaitTermination(warmup + seconds + 60, TimeUnit.SECONDS)){
+            throw new IllegalStateException("workers did not finish");
+        }
+
+        Stats all = new Stats();
+        for(Stats s: stats){
+            all.merge(s);
+        }
+        String json = report(conf, virtual && VirtualThreads.isSupported(), seconds, all);
+        String path = conf.get("report");
+        if(path.isEmpty()){
+            System.out.println(json);
+        } else {
+            Files.writeString(Path.of(path), json + "\n", StandardCharsets.UTF_8);
+            System.out.printf(Locale.ROOT, "%s %s: %,.0f ops/s, response p50 %dns p99 %dns p999 %dns -> %s%n",
+                    targetName, conf.get("mode"), all.service.count() / (double) seconds,
+                    all.response.percentile(50), all.response.percentile(99), all.response.percentile(99.9), path);
+        }
+    }
+
+    static void work(Target target, Stats stats, Zipf skew, int accounts, int[] mix, boolean open,
+                     long interval, long first, long measureFrom, long end){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Op[] ops = Op.values();
+        long next = first;
+        waitUntil(first);
+        while(true){
+            long intended;
+            if(interval > 0){
+                if(!open){
+                    next = Math.max(next, System.nanoTime()); // closed: no burst to catch up, see recordCorrected below
+                }
+                waitUntil(next); // returns at once if we are behind the schedule
+                intended = next;
+                next += interval;
+            } else {
+                intended = System.nanoTime();
+            }
+            if(intended >= end){
+                return;
+            }
+            int account = skew != null ? skew.next(random) : random.nextInt(accounts);
+            int other = random.nextInt(accounts - 1);
+            if(other >= account){
+                other++;
+            }
+            int roll = random.nextInt(100);
+            int op = 0;
+            while(roll >= mix[op]){
+                op++;
+            }
+            int amount = 1 + random.nextInt(100);
+
+            long t0 = System.nanoTime();
+            target.run(ops[op], account, other, amount);
+            long t1 = System.nanoTime();
+            if(intended < measureFrom){
+                continue;
+            }
+            stats.service.record(t1 - t0);
+            long response;
+            if(open){
+                response = t1 - intended;
+                stats.response.record(response);
+            } else {
+                //closed: the next operation of this worker waits for this one, so a slow one hides the ones that
+                //would have been sent meanwhile; recordCorrected adds them back (only possible with a schedule).
+                //the schedule above does not catch up, otherwise those would be counted a second time
+                response = t1 - t0;
+                stats.response.recordCorrected(response, interval);
+            }
+            stats.perOp[op].record(response);
+        }
+    }
+
+    static void waitUntil(long time){
+        for(long left = time - System.nanoTime(); left > 0; left = time - System.nanoTime()){
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    //"read:90,withdraw:8,transfer:2" -> cumulative {90, 98, 100} in Op order
+    static int[] parseMix(String mix){
+        int[] percent = new int[Op.values().length];
+        for(String part: mix.split(",")){
+            String[] kv = part.split(":");
+            if(kv.length != 2){
+                throw new IllegalArgumentException("mix entry must be op:percent: " + part);
+            }
+            percent[Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)).ordinal()] += Integer.parseInt(kv[1].trim());
+        }
+        int[] cumulative = new int[percent.length];
+        int sum = 0;
+        for(int i = 0; i < percent.length; i++){
+            if(percent[i] < 0){
+                throw new IllegalArgumentException("negative percent in mix: " + mix);
+            }
+            sum += percent[i];
+            cumulative[i] = sum;
+        }
+        if(sum != 100){
+            throw new IllegalArgumentException("mix must add up to 100: " + mix);
+        }
+        return cumulative;
+    }
+
+    //one JSON object, keys always in the same order so reports can be diffed
+    static String report(Map<String, String> conf, boolean virtualUsed, long seconds, Stats all){
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"target\":\"").append(conf.get("target")).append('"')
+                .append(",\"mode\":\"").append(conf.get("mode")).append('"')
+                .append(",\"threads\":").append(conf.get("threads"))
+                .append(",\"virtual_threads\":").append(virtualUsed)
+                .append(",\"rate\":").append(conf.get("rate"))
+                .append(",\"accounts\":").append(conf.get("accounts"))
+                .append(",\"skew\":\"").append(conf.get("skew")).append('"')
+                .append(",\"zipf\":").append(conf.get("zipf"))
+                .append(",\"mix\":\"").append(conf.get("mix")).append('"')
+                .append(",\"seconds\":").append(seconds)
+                .append(",\"java\":\"").append(System.getProperty("java.version")).append('"')
+                .append(",\"cores\":").append(Runtime.getRuntime().availableProcessors())
+                .append(",\"operations\":").append(all.service.count())
+                .append(",\"throughput\":").append(String.format(Locale.ROOT, "%.1f", all.service.count() / (double) seconds))
+                .append(",\"service_ns\":");
+        histogram(sb, all.service);
+        sb.append(",\"response_ns\":");
+        histogram(sb, all.response);
+        sb.append(",\"operations_ns\":{");
+        Op[] ops = Op.values();
+        for(int i = 0; i < ops.length; i++){
+            sb.append(i == 0 ? "" : ",").append('"').append(ops[i].name().toLowerCase(Locale.ROOT)).append("\":");
+            histogram(sb, all.perOp[i]);
+        }
+        return sb.append("}}").toString();
+    }
+
+    static void histogram(StringBuilder sb, LatencyHistogram h){
+        sb.append("{\"count\":").append(h.count())
+                .append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", h.mean()))
+                .append(",\"p50\":").append(h.percentile(50))
+                .append(",\"p90\":").append(h.percentile(90))
+                .append(",\"p99\":").append(h.percentile(99))
+                .append(",\"p999\":").append(h.percentile(99.9))
+                .append(",\"max\":").append(h.max()).append('}');
+    }
+}
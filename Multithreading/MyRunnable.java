@@ -0,0 +1,12 @@
+package Multithreading;
+
+class MyRunnable implements Runnable{
+    @Override
+    public void run() {
+        System.out.println("The run method of Runnable interface started running");
+        for (int i = 0; i < 6; i++){
+            System.out.println("Thread started running");
+        }
+        System.out.println("Thread Stopped Running");
+    }
+}
@@ -0,0 +1,254 @@
+package Multithreading;
+
+import Advance_Multithreading.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Thread.setPriority() is only a hint, on Linux the JVM ignores it by default (all threads get the same OS priority).
+ * This scheduler gives priority in user space instead: our own worker threads decide which Runnable runs next.
+ *
+ *  - lanes: lane 0 is the most important. Every lane has a weight, e.g. {8, 4, 1}: when all lanes are full,
+ *    out of 13 tasks 8 come from lane 0, 4 from lane 1 and 1 from lane 2 (weighted fair, stride scheduling).
+ *  - aging: a task that waited longer than maxWait in its lane moves up one lane (from lane 1 into lane 0 too),
+ *    so a flooded low lane still gets its old tasks out. It goes to the back of the higher lane and moves only
+ *    one lane per maxWait, so urgent work that is already queued is not pushed back by a burst of old tasks.
+ *  - per lane histogram of the time tasks waited in the queue, to check a latency target for the top lane.
+ * A task that throws is reported and the worker goes on; after an Error the worker thread is replaced by a new one
+ * and the Error is rethrown, so it still ends the old thread through its uncaught exception handler.
+ */
+public class PriorityScheduler {
+    private static final long STRIDE_BASE = 1 << 20;
+
+    private static class Entry {
+        final Runnable task;
+        final int lane;
+        final long enqueuedAt;
+        long promotedAt;
+
+        Entry(Runnable task, int lane, long enqueuedAt){
+            this.task = task;
+            this.lane = lane;
+            this.enqueuedAt = enqueuedAt;
+            this.promotedAt = enqueuedAt;
+        }
+    }
+
+    private final ArrayDeque<Entry>[] lanes;
+    private final long[] stride;
+    private final long[] pass;
+    private final long maxWaitNanos;
+    private final LatencyHistogram[] waitMicros;
+    private final List<Thread> workers = new ArrayList<>(); // live workers, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    private final Condition stopped = lock.newCondition();
+    private int nextWorker;
+    private int queued;
+    private int running;
+    private boolean shutdown;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityScheduler(int threads, int[] weights, long maxWaitMillis){
+        if(threads <= 0 || weights.length == 0){
+            throw new IllegalArgumentException("need at least one thread and one lane");
+        }
+        lanes = new ArrayDeque[weights.length];
+        stride = new long[weights.length];
+        pass = new long[weights.length];
+        waitMicros = new LatencyHistogram[weights.length];
+        for(int i = 0; i < weights.length; i++){
+            if(weights[i] <= 0){
+                throw new IllegalArgumentException("weight must be positive: " + weights[i]);
+            }
+            lanes[i] = new ArrayDeque<>();
+            stride[i] = STRIDE_BASE / weights[i];
+            waitMicros[i] = new LatencyHistogram();
+        }
+        maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        lock.lock();
+        try{
+            for(int i = 0; i < threads; i++){
+                startWorker();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void submit(Runnable task, int lane){
+        lock.lock();
+        try{
+            if(shutdown){
+                throw new IllegalStateException("scheduler is shut down");
+            }
+            enqueue(lane, new Entry(task, lane, System.nanoTime()));
+            queued++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //percentile of the time tasks of this lane waited before starting, in microseconds
+    public long waitPercentileMicros(int lane, double percentile){
+        lock.lock();
+        try{
+            return waitMicros[lane].percentile(percentile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long completed(int lane){
+        lock.lock();
+        try{
+            return waitMicros[lane].count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resetStats(){
+        lock.lock();
+        try{
+            for(LatencyHistogram h: waitMicros){
+                h.reset();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //waits until every submitted task has run
+    public void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try{
+            while(queued > 0 || running > 0){
+                idle.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //runs what is already queued, then stops the workers
+    public void shutdown() throws InterruptedException {
+        lock.lock();
+        try{
+            shutdown = true;
+            notEmpty.signalAll();
+            while(!workers.isEmpty()){
+                stopped.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //called with the lock held
+    private void startWorker(){
+        Thread t = new Thread(this::work, "priority-worker-" + nextWorker++);
+        workers.add(t);
+        t.start();
+    }
+
+    private void work(){
+        while(true){
+            Runnable task;
+            lock.lock();
+            try{
+                while(queued == 0 && !shutdown){
+                    notEmpty.awaitUninterruptibly();
+                }
+                if(queued == 0){
+                    workers.remove(Thread.currentThread());
+                    stopped.signalAll();
+                    return;
+                }
+                task = take();
+                running++;
+            } finally {
+                lock.unlock();
+            }
+            Error died = null;
+            try{
+                task.run();
+            } catch (RuntimeException e) {
+                System.out.println(Thread.currentThread().getName() + ": task failed " + e);
+            } catch (Error e) {
+                //after e.g. StackOverflowError the thread may be left in a bad state, so it stops and a new one takes over
+                System.out.println(Thread.currentThread().getName() + ": task failed " + e + ", replacing this worker");
+                died = e;
+            } finally {
+                lock.lock();
+                try{
+                    running--;
+                    if(died != null){
+                        workers.remove(Thread.currentThread());
+                        startWorker(); // also after shutdown(), the queued tasks still have to run
+                    }
+                    if(queued == 0 && running == 0){
+                        idle.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if(died != null){
+                throw died;
+            }
+        }
+    }
+
+    private void enqueue(int lane, Entry e){
+        if(lanes[lane].isEmpty()){
+            //a lane that was empty starts at the current minimum, so it cannot use up "saved" turns in a burst
+            pass[lane] = Math.max(pass[lane], minPass());
+        }
+        lanes[lane].addLast(e);
+    }
+
+    //called with the lock held and at least one task queued
+    private Runnable take(){
+        long now = System.nanoTime();
+        //aging: the oldest tasks are at the head, so only heads have to be checked
+        for(int i = 1; i < lanes.length; i++){
+            Entry head;
+            while((head = lanes[i].peekFirst()) != null && now - head.promotedAt > maxWaitNanos){
+                lanes[i].pollFirst();
+                head.promotedAt = now;
+                enqueue(i - 1, head);
+            }
+        }
+        //the non empty lane with the smallest pass, ties go to the more important lane
+        int chosen = -1;
+        for(int i = 0; i < lanes.length; i++){
+            if(!lanes[i].isEmpty() && (chosen < 0 || pass[i] < pass[chosen])){
+                chosen = i;
+            }
+        }
+        pass[chosen] += stride[chosen];
+        Entry e = lanes[chosen].pollFirst();
+        queued--;
+        //wait is counted for the lane the task was submitted to, even if it got promoted
+        waitMicros[e.lane].record(TimeUnit.NANOSECONDS.toMicros(now - e.enqueuedAt));
+        return e.task;
+    }
+
+    private long minPass(){
+        long min = Long.MAX_VALUE;
+        for(int i = 0; i < lanes.length; i++){
+            if(!lanes[i].isEmpty()){
+                min = Math.min(min, pass[i]);
+            }
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+}
@@ -0,0 +1,96 @@
+package Multithreading;
+
+import Advance_Multithreading.LatencyHistogram;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Saturates the workers with background (low lane) work and sends a trickle of urgent (top lane) tasks.
+ * Checks that the top lane p99 queue wait stays under the SLO, and compares it with a plain FIFO pool
+ * where urgent work gets in line behind everything else (that is what setPriority() gives us on Linux).
+ * It also checks that the low lane still makes progress (aging).
+ *
+ * args: [seconds] [sloMillis]
+ */
+public class PrioritySchedulerBenchmark {
+    static final int THREADS = 2;
+    static final long TASK_MICROS = 200;
+    static volatile long sink;
+
+    static void spin(long micros){
+        long end = System.nanoTime() + micros * 1000;
+        long x = 0;
+        while(System.nanoTime() < end){
+            x++;
+        }
+        sink += x;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long sloMillis = args.length > 1 ? Long.parseLong(args[1]) : 10;
+
+        System.out.println("threads " + THREADS + ", task " + TASK_MICROS + "us, top lane SLO p99 < " + sloMillis + "ms");
+
+        PriorityScheduler scheduler = new PriorityScheduler(THREADS, new int[]{8, 4, 1}, 200);
+        runScheduler(scheduler, seconds);
+        long p99 = scheduler.waitPercentileMicros(0, 99);
+        System.out.printf("scheduler  top p50 %6dus p99 %6dus | mid done %7d p99 %8dus | low done %7d p99 %8dus%n",
+                scheduler.waitPercentileMicros(0, 50), p99,
+                scheduler.completed(1), scheduler.waitPercentileMicros(1, 99),
+                scheduler.completed(2), scheduler.waitPercentileMicros(2, 99));
+        scheduler.shutdown();
+
+        runFifo(seconds);
+
+        boolean ok = p99 <= TimeUnit.MILLISECONDS.toMicros(sloMillis) && scheduler.completed(2) > 0;
+        System.out.println(ok ? "SLO met" : "SLO MISSED");
+    }
+
+    //keeps about 1000 background tasks queued in the two lower lanes and adds an urgent one every ms
+    static void runScheduler(PriorityScheduler scheduler, int seconds) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long submitted = 0;
+        while(System.nanoTime() < end){
+            long backlog = submitted - scheduler.completed(1) - scheduler.completed(2);
+            for(long i = backlog; i < 1000; i++){
+                scheduler.submit(() -> spin(TASK_MICROS), (int) (submitted++ & 1) + 1);
+            }
+            scheduler.submit(() -> spin(TASK_MICROS), 0);
+            Thread.sleep(1);
+        }
+        scheduler.awaitIdle();
+    }
+
+    //same load on a FIFO pool, wait measured by the task itself
+    static void runFifo(int seconds) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        LatencyHistogram top = new LatencyHistogram();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong done = new AtomicLong();
+        long submitted = 0;
+        while(System.nanoTime() < end){
+            for(long i = submitted - done.get(); i < 1000; i++){
+                submitted++;
+                pool.execute(() -> { spin(TASK_MICROS); done.incrementAndGet(); });
+            }
+            long queuedAt = System.nanoTime();
+            pool.execute(() -> {
+                long waited = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedAt);
+                synchronized (top){
+                    top.record(waited);
+                }
+                spin(TASK_MICROS);
+            });
+            Thread.sleep(1);
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        synchronized (top){
+            System.out.printf("fifo pool  top p50 %6dus p99 %6dus%n", top.percentile(50), top.percentile(99));
+        }
+    }
+}
@@ -1,15 +1,6 @@
 package Multithreading;
 
-class MyRunnable implements Runnable{
-    @Override
-    public void run() {
-        System.out.println("The run method of Runnable interface started running");
-        for (int i = 0; i < 6; i++){
-            System.out.println("Thread started running");
-        }
-        System.out.println("Thread Stopped Running");
-    }
-}
+//MyRunnable, the task both threads run, is in MyRunnable.java
 public class RunnableInterface {
     public static void main(String[] args) {
         System.out.println("The main Thread started execution");
@@ -23,5 +14,7 @@ public class RunnableInterface {
         for (int i = 0; i < 10; i++){
             System.out.println("Main Thread is running fine");
         }
+        //main never joins the two threads, so it cannot know when they finished or how long they took.
+        //TaskScopeDemo runs MyRunnable inside a TaskScope that waits for them and measures every subtask.
     }
 }
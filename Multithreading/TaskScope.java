@@ -0,0 +1,349 @@
+package Multithreading;
+
+import Advance_Multithreading.LatencyHistogram;
+import ExecuterService.VirtualThreads;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Structured concurrency: subtasks are forked inside a scope and the scope does not end before all of them ended.
+ * (Java 21 has StructuredTaskScope for this, Java 17 does not, so this is a small version of it.)
+ *
+ *   try(TaskScope scope = new TaskScope("report")){
+ *       TaskScope.Subtask<Integer> count = scope.fork("count", () -> countStudents());
+ *       scope.fork("print", new MyRunnable());
+ *       scope.join(2, TimeUnit.SECONDS);   // all done, or the first failure, or the deadline
+ *       System.out.println(count.get());
+ *   }                                      // close(): cancels what still runs and waits until it stopped
+ *
+ * Fail fast: when one subtask throws, the others are cancelled (interrupted, or never started if still queued)
+ * and join() throws ExecutionException with the first failure. At the deadline join() cancels everything and
+ * throws TimeoutException. After cancel() join() throws IllegalStateException, even if every subtask has ended.
+ * Either way no thread of the scope is still running after close().
+ *
+ * For every subtask the scope records, in nanoseconds:
+ *   queue delay  fork() until a thread started it
+ *   wall time    start until end
+ *   cpu time     cpu the thread used for it (not available for virtual threads, then not recorded)
+ * The scope is meant to be used by the thread that created it.
+ */
+public class TaskScope implements AutoCloseable {
+    public enum State { WAITING, RUNNING, SUCCESS, FAILED, CANCELLED }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    private final LatencyHistogram queueNanos = new LatencyHistogram();
+    private final LatencyHistogram wallNanos = new LatencyHistogram();
+    private final LatencyHistogram cpuNanos = new LatencyHistogram();
+    private int unfinished;
+    private Throwable firstFailure;
+    private boolean cancelled;
+    private boolean closed;
+
+    //one new thread per subtask (virtual threads when the JVM has them)
+    public TaskScope(String name){
+        this(name, VirtualThreads.newPerTaskExecutor(), true);
+    }
+
+    //subtasks run on this pool, the scope does not shut it down
+    public TaskScope(String name, ExecutorService executor){
+        this(name, executor, false);
+    }
+
+    private TaskScope(String name, ExecutorService executor, boolean ownsExecutor){
+        this.name = name;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public <T> Subtask<T> fork(String taskName, Callable<T> task){
+        Subtask<T> subtask = new Subtask<>(taskName, task);
+        lock.lock();
+        try{
+            if(closed){
+                throw new IllegalStateException("scope " + name + " is closed");
+            }
+            subtasks.add(subtask);
+            unfinished++;
+        } finally {
+            lock.unlock();
+        }
+        try{
+            executor.execute(subtask::run);
+        } catch (RejectedExecutionException e) {
+            //it will never run, so it must not count as unfinished or close() waits for it forever
+            lock.lock();
+            try{
+                subtask.failure = e;
+                subtask.finishLocked(State.CANCELLED, System.nanoTime(), false);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        return subtask;
+    }
+
+    public Subtask<Void> fork(String taskName, Runnable task){
+        return fork(taskName, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    //waits until every subtask finished, one failed, or the timeout passed; throws IllegalStateException after cancel()
+    public void join(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long left = unit.toNanos(timeout);
+        lock.lock();
+        try{
+            while(unfinished > 0 && firstFailure == null && !cancelled){
+                if(left <= 0){
+                    cancelLocked();
+                    throw new TimeoutException("scope " + name + ": " + unfinished + " subtasks still running");
+                }
+                left = changed.awaitNanos(left);
+            }
+            if(firstFailure != null){
+                throw new ExecutionException("subtask of scope " + name + " failed", firstFailure);
+            }
+            if(cancelled){
+                //cancel() was called: also when every subtask has ended by now, some of them may not have run
+                throw new IllegalStateException("scope " + name + " was cancelled");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //stops all subtasks that have not finished yet
+    public void cancel(){
+        lock.lock();
+        try{
+            cancelLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //cancels what still runs and waits until every subtask thread left its task
+    @Override
+    public void close(){
+        boolean interrupted = false;
+        lock.lock();
+        try{
+            closed = true;
+            if(unfinished > 0){
+                cancelLocked();
+            }
+            while(unfinished > 0){
+                try{
+                    changed.await();
+                } catch (InterruptedException e) {
+                    interrupted = true; // keep waiting, the scope must not end before its subtasks
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if(ownsExecutor){
+            executor.shutdown();
+        }
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public List<Subtask<?>> subtasks(){
+        lock.lock();
+        try{
+            return new ArrayList<>(subtasks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LatencyHistogram queueDelays(){
+        return copy(queueNanos);
+    }
+
+    public LatencyHistogram wallTimes(){
+        return copy(wallNanos);
+    }
+
+    public LatencyHistogram cpuTimes(){
+        return copy(cpuNanos);
+    }
+
+    //one line per histogram, for printing at the end of a job
+    public String summary(){
+        return String.format("scope %s%n  queue delay %s%n  wall time   %s%n  cpu time    %s",
+                name, line(queueDelays()), line(wallTimes()), line(cpuTimes()));
+    }
+
+    private static String line(LatencyHistogram h){
+        return String.format("n=%d p50=%dus p99=%dus max=%dus", h.count(),
+                h.percentile(50) / 1000, h.percentile(99) / 1000, h.max() / 1000);
+    }
+
+    private LatencyHistogram copy(LatencyHistogram h){
+        LatencyHistogram copy = new LatencyHistogram();
+        lock.lock();
+        try{
+            copy.merge(h);
+        } finally {
+            lock.unlock();
+        }
+        return copy;
+    }
+
+    private void cancelLocked(){
+        cancelled = true;
+        for(Subtask<?> s: subtasks){
+            if(s.thread != null){
+                s.thread.interrupt();
+            }
+        }
+        changed.signalAll();
+    }
+
+    public final class Subtask<T> {
+        private final String taskName;
+        private final Callable<T> task;
+        private final long forkedAt = System.nanoTime();
+        private volatile State state = State.WAITING;
+        private Thread thread; // only while running, guarded by lock
+        private T result;
+        private Throwable failure;
+        private long queueDelay;
+        private long wallTime;
+        private long cpuTime = -1;
+
+        private Subtask(String taskName, Callable<T> task){
+            this.taskName = taskName;
+            this.task = task;
+        }
+
+        public String name(){
+            return taskName;
+        }
+
+        public State state(){
+            return state;
+        }
+
+        public T get(){
+            if(state != State.SUCCESS){
+                throw new IllegalStateException("subtask " + taskName + " is " + state);
+            }
+            return result;
+        }
+
+        public Throwable failure(){
+            return failure;
+        }
+
+        public long queueDelayNanos(){
+            return queueDelay;
+        }
+
+        public long wallNanos(){
+            return wallTime;
+        }
+
+        //-1 when the JVM cannot measure it for this thread
+        public long cpuNanos(){
+            return cpuTime;
+        }
+
+        private void run(){
+            long start = System.nanoTime();
+            lock.lock();
+            try{
+                if(cancelled){
+                    finishLocked(State.CANCELLED, start, false); // never started, nothing to measure
+                    return;
+                }
+                thread = Thread.currentThread();
+                state = State.RUNNING;
+            } finally {
+                lock.unlock();
+            }
+            long cpu0 = cpuTimeNow();
+            State end;
+            try{
+                result = task.call();
+                end = State.SUCCESS;
+            } catch (InterruptedException e) {
+                failure = e;
+                end = State.CANCELLED;
+            } catch (Throwable e) {
+                failure = e;
+                end = State.FAILED;
+            }
+            long cpu1 = cpuTimeNow();
+            lock.lock();
+            try{
+                thread = null;
+                if(end == State.FAILED && cancelled){
+                    end = State.CANCELLED; // it failed because we interrupted it, not the first failure
+                }
+                if(cpu0 >= 0 && cpu1 >= 0){
+                    cpuTime = cpu1 - cpu0;
+                    cpuNanos.record(cpuTime);
+                }
+                finishLocked(end, start, true);
+            } finally {
+                lock.unlock();
+            }
+            //an interrupt sent by cancel() must not stay on a pool thread for its next task
+            Thread.interrupted();
+        }
+
+        private void finishLocked(State end, long start, boolean ran){
+            if(ran){
+                queueDelay = start - forkedAt;
+                wallTime = System.nanoTime() - start;
+                queueNanos.record(queueDelay);
+                wallNanos.record(wallTime);
+            }
+            state = end;
+            if(end == State.FAILED && firstFailure == null){
+                firstFailure = failure;
+                cancelLocked(); // fail fast
+            }
+            unfinished--;
+            changed.signalAll();
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%s %s queue=%dus wall=%dus cpu=%s", taskName, state, queueDelay / 1000,
+                    wallTime / 1000, cpuTime < 0 ? "n/a" : cpuTime / 1000 + "us");
+        }
+    }
+
+    private static long cpuTimeNow(){
+        try{
+            return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+}
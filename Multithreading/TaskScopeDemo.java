@@ -0,0 +1,100 @@
+package Multithreading;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * RunnableInterface starts two MyRunnable threads and main never knows when they are finished.
+ * Here the same work runs inside a TaskScope: main waits for it, sees failures, and gets the timings.
+ *  1. fan out: MyRunnable twice + Callables that return a value, all joined
+ *  2. fail fast: one subtask throws, the slow ones are cancelled at once
+ *  3. deadline: subtasks that take too long are cancelled when the time is up
+ *  4. 200 small subtasks on a pool of 4 threads, to see queue delay and tail latency in the histograms
+ */
+public class TaskScopeDemo {
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("1. fan out and join");
+        try(TaskScope scope = new TaskScope("fan-out")){
+            scope.fork("runnable-1", new MyRunnable());
+            scope.fork("runnable-2", new MyRunnable());
+            TaskScope.Subtask<Long> sum = scope.fork("sum", () -> {
+                long s = 0;
+                for(int i = 1; i <= 10_000_000; i++){
+                    s += i;
+                }
+                return s;
+            });
+            scope.join(5, TimeUnit.SECONDS);
+            System.out.println("sum = " + sum.get());
+            for(TaskScope.Subtask<?> s: scope.subtasks()){
+                System.out.println("  " + s);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("unexpected: " + e);
+        }
+
+        System.out.println();
+        System.out.println("2. fail fast");
+        long t0 = System.nanoTime();
+        try(TaskScope scope = new TaskScope("fail-fast")){
+            scope.fork("slow", () -> {
+                Thread.sleep(10_000);
+                return "never";
+            });
+            scope.fork("broken", () -> {
+                Thread.sleep(50);
+                throw new IllegalStateException("database is down");
+            });
+            scope.join(30, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            System.out.println("join failed after " + (System.nanoTime() - t0) / 1_000_000 + "ms: " + e.getCause());
+        } catch (TimeoutException e) {
+            System.out.println("unexpected: " + e);
+        }
+
+        System.out.println();
+        System.out.println("3. deadline");
+        t0 = System.nanoTime();
+        TaskScope late = new TaskScope("deadline");
+        try(late){
+            late.fork("fast", () -> "done");
+            late.fork("too-slow", () -> {
+                Thread.sleep(10_000);
+                return "never";
+            });
+            late.join(200, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("timed out after " + (System.nanoTime() - t0) / 1_000_000 + "ms: " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.out.println("unexpected: " + e);
+        }
+        for(TaskScope.Subtask<?> s: late.subtasks()){
+            System.out.println("  " + s);
+        }
+
+        System.out.println();
+        System.out.println("4. 200 subtasks on 4 threads");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try(TaskScope scope = new TaskScope("batch", pool)){
+            for(int i = 0; i < 200; i++){
+                int work = i % 10 == 0 ? 2_000_000 : 200_000; // every 10th is 10x bigger
+                scope.fork("part-" + i, () -> {
+                    long x = 0;
+                    for(int j = 0; j < work; j++){
+                        x += j ^ (x >>> 3);
+                    }
+                    return x;
+                });
+            }
+            scope.join(30, TimeUnit.SECONDS);
+            System.out.println(scope.summary());
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("unexpected: " + e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -1,4 +1,7 @@
 package Multithreading;
+
+import java.util.concurrent.CountDownLatch;
+
 class Running implements Runnable{
     @Override
     public void run() {
@@ -10,7 +13,7 @@ class Running implements Runnable{
     }
 }
 public class ThreadPriority {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         /*
         * By Default only main thread have the priority of 5, Rest all the Thread will inheritance the priority from its
         * parent class, means the priority there parents have by default will be there same
@@ -27,6 +30,35 @@ public class ThreadPriority {
        //Starting the Thread;
         thread1.start();
         thread2.start();
+        thread1.join();
+        thread2.join();
 
+        /*
+        * On Linux the JVM does not pass these priorities to the OS (unless -XX:ThreadPriorityPolicy is set),
+        * so both Threads above are treated the same. If we really want some work to go first, our own
+        * scheduler has to pick it: PriorityScheduler keeps one queue per lane (0 = most important)
+        * and its workers take the next task by weight. PrioritySchedulerBenchmark measures it.
+        * */
+        PriorityScheduler scheduler = new PriorityScheduler(1, new int[]{8, 1}, 1000);
+        //the only worker waits on the gate, so every task below is queued before it picks the next one
+        //(the gate is a lane 1 task, so lane 1 has already had its turn when the queue opens)
+        CountDownLatch gate = new CountDownLatch(1);
+        scheduler.submit(()-> {
+            try{
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1);
+        for(int i = 1; i <= 3; i++){
+            int n = i;
+            scheduler.submit(()-> System.out.println("low priority task " + n + " (lane 1, submitted first)"), 1);
+        }
+        for(int i = 1; i <= 3; i++){
+            int n = i;
+            scheduler.submit(()-> System.out.println("high priority task " + n + " (lane 0, submitted last)"), 0);
+        }
+        gate.countDown();
+        scheduler.shutdown(); // the high priority tasks print before the low priority ones
     }
 }
@@ -1,3 +1,6 @@
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
 public class Polymorphism {
     public int number(int a, int b){
         return a + b;
@@ -9,6 +12,24 @@ public class Polymorphism {
         return a + b;
     }
 
+    //bulk overloads: add up a whole array/buffer in one call instead of calling number(a, b) in a loop (see ArraySum)
+    public long number(int[] values){
+        return ArraySum.sum(values);
+    }
+    public long number(long[] values){
+        return ArraySum.sum(values);
+    }
+    public double number(double[] values){
+        return ArraySum.sum(values);
+    }
+    //buffers can be off-heap (ByteBuffer.allocateDirect(..).asIntBuffer()), elements from position to limit are added.
+    public long number(IntBuffer values){
+        return ArraySum.sum(values);
+    }
+    public double number(DoubleBuffer values){
+        return ArraySum.sum(values);
+    }
+
     public static void main(String[] args) {
 
          Polymorphism poly = new Polymorphism();
@@ -0,0 +1,97 @@
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.SplittableRandom;
+
+/*
+ * Run: java -Xmx2g PolymorphismBenchmark [maxSize]
+ * For sizes 1K, 10K ... up to maxSize (default 10M, 100M needs about 3GB heap + off-heap) compares
+ *   scalar -> total = poly.number(total, a[i]) in a loop, the old way (int version overflows!)
+ *   bulk   -> poly.number(int[]) / number(long[]) / number(double[]) / number(IntBuffer) / number(DoubleBuffer)
+ * and checks the bulk results (long sum against BigInteger).
+ */
+public class PolymorphismBenchmark {
+    public static void main(String[] args){
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Polymorphism poly = new Polymorphism();
+        SplittableRandom random = new SplittableRandom(7);
+        System.out.printf("%11s %12s %12s %12s %12s %12s %12s%n", "size", "int scalar", "int[]", "IntBuffer", "double scalar",
+                "double[]", "long[]");
+        for(int size = 1000; size <= max && size > 0; size *= 10){
+            int[] ints = new int[size];
+            long[] longs = new long[size];
+            double[] doubles = new double[size];
+            IntBuffer intBuf = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+            DoubleBuffer doubleBuf = ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            for(int i = 0; i < size; i++){
+                ints[i] = random.nextInt();
+                longs[i] = random.nextLong() >> 16;
+                doubles[i] = random.nextDouble();
+                intBuf.put(i, ints[i]);
+                doubleBuf.put(i, doubles[i]);
+            }
+            int reps = Math.max(3, 50_000_000 / size);
+
+            double intScalar = time(reps, size, ()->{
+                int total = 0;
+                for(int v: ints){
+                    total = poly.number(total, v);
+                }
+                return total;
+            });
+            double intBulk = time(reps, size, ()-> poly.number(ints));
+            double intBuffer = time(reps, size, ()-> poly.number(intBuf));
+            double doubleScalar = time(reps, size, ()->{
+                double total = 0;
+                for(double v: doubles){
+                    total = poly.number(total, v);
+                }
+                return (long) total;
+            });
+            double doubleBulk = time(reps, size, ()-> (long) poly.number(doubles));
+            double longBulk = time(reps, size, ()-> poly.number(longs));
+            System.out.printf("%,11d %9.3f ns %9.3f ns %9.3f ns %9.3f ns %9.3f ns %9.3f ns%n", size, intScalar, intBulk, intBuffer,
+                    doubleScalar, doubleBulk, longBulk);
+
+            BigInteger exact = BigInteger.ZERO;
+            long intExact = 0;
+            for(int i = 0; i < size; i++){
+                exact = exact.add(BigInteger.valueOf(longs[i]));
+                intExact += ints[i];
+            }
+            if(exact.longValueExact() != poly.number(longs) || intExact != poly.number(ints) || intExact != poly.number(intBuf)
+                    || poly.number(doubles) != poly.number(doubleBuf)){
+                throw new AssertionError("bulk sum is wrong for size " + size);
+            }
+        }
+        if(poly.number(new long[]{Long.MAX_VALUE, Long.MAX_VALUE, -Long.MAX_VALUE}) != Long.MAX_VALUE){
+            throw new AssertionError("overflow in the middle of the sum must not change the result");
+        }
+        try{
+            poly.number(new long[]{Long.MAX_VALUE, 1});
+            throw new AssertionError("overflow was not detected");
+        } catch (ArithmeticException expected) {
+            System.out.println("long overflow detected: " + expected.getMessage());
+        }
+        System.out.println("int, long and double sums checked");
+    }
+
+    interface Work {
+        long run();
+    }
+
+    static long sink;
+
+    //ns per element, best of reps runs
+    private static double time(int reps, int size, Work work){
+        long best = Long.MAX_VALUE;
+        for(int r = 0; r < reps; r++){
+            long t0 = System.nanoTime();
+            sink += work.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / (double) size;
+    }
+}
@@ -0,0 +1,156 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * Writes many records (Student, course, car, ATM ...) as text into ONE reusable byte buffer
+ * and sends the buffer to a channel (file or stdout) only when it is full.
+ *
+ * System.out.println("Name: "+name+...) per record makes a new String (+ StringBuilder) every time and takes
+ * the PrintStream lock for every line. Here strings are copied char by char and numbers are written digit by digit,
+ * so rendering a record creates no garbage at all (doubles: only whole numbers below 10 million, others use Double.toString).
+ * Output is UTF-8 and is the same text the println versions print.
+ */
+public class RecordRenderer implements AutoCloseable {
+    private final WritableByteChannel channel;
+    private final boolean ownsChannel;
+    private final ByteBuffer buf;
+    private final byte[] digits = new byte[20];
+
+    public RecordRenderer(WritableByteChannel channel, int bufferSize){
+        this(channel, bufferSize, true);
+    }
+
+    private RecordRenderer(WritableByteChannel channel, int bufferSize, boolean ownsChannel){
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.buf = ByteBuffer.allocateDirect(Math.max(64, bufferSize));
+    }
+
+    //renderer for the console, close() only flushes and leaves stdout open.
+    public static RecordRenderer stdout(){
+        System.out.flush();
+        return new RecordRenderer(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), 1 << 16, false);
+    }
+
+    public RecordRenderer append(String s){
+        if(s == null){
+            return append("null");
+        }
+        for(int i = 0, n = s.length(); i < n; i++){
+            if(buf.remaining() < 4){
+                flush();
+            }
+            char c = s.charAt(i);
+            if(c < 0x80){
+                buf.put((byte) c);
+            } else if(c < 0x800){
+                buf.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if(Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))){
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | (cp >> 18))).put((byte) (0x80 | ((cp >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((cp >> 6) & 0x3F))).put((byte) (0x80 | (cp & 0x3F)));
+            } else if(Character.isSurrogate(c)){
+                buf.put((byte) '?'); // broken surrogate pair, same as String.getBytes(UTF_8)
+            } else {
+                buf.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return this;
+    }
+
+    //bytes that are already UTF-8, e.g. a name from the StudentStore arena.
+    public RecordRenderer append(byte[] utf8, int offset, int length){
+        while(length > 0){
+            if(!buf.hasRemaining()){
+                flush();
+            }
+            int n = Math.min(length, buf.remaining());
+            buf.put(utf8, offset, n);
+            offset += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    //UTF-8 bytes from another buffer, e.g. a memory mapped StudentFile, the source position is not changed.
+    public RecordRenderer append(ByteBuffer utf8, int offset, int length){
+        while(length > 0){
+            if(!buf.hasRemaining()){
+                flush();
+            }
+            int n = Math.min(length, buf.remaining());
+            buf.put(buf.position(), utf8, offset, n).position(buf.position() + n);
+            offset += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    public RecordRenderer append(int value){
+        return append((long) value);
+    }
+
+    public RecordRenderer append(long value){
+        if(buf.remaining() < 20){
+            flush();
+        }
+        //digits are made from a negative number so Long.MIN_VALUE works too
+        long v = value < 0 ? value : -value;
+        int pos = digits.length;
+        do{
+            digits[--pos] = (byte) ('0' - (v % 10));
+            v /= 10;
+        } while(v != 0);
+        if(value < 0){
+            buf.put((byte) '-');
+        }
+        buf.put(digits, pos, digits.length - pos);
+        return this;
+    }
+
+    //same text as String.valueOf(double)
+    public RecordRenderer append(double value){
+        if(value == Math.rint(value) && Math.abs(value) < 1e7 && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0)){
+            return append((long) value).append(".0");
+        }
+        return append(Double.toString(value));
+    }
+
+    public RecordRenderer newline(){
+        if(!buf.hasRemaining()){
+            flush();
+        }
+        buf.put((byte) '\n');
+        return this;
+    }
+
+    public void flush(){
+        buf.flip();
+        try{
+            while(buf.hasRemaining()){
+                channel.write(buf);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buf.clear();
+        }
+    }
+
+    @Override
+    public void close(){
+        flush();
+        if(ownsChannel){
+            try{
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Prints 1M students and 1M ATM accounts to a file two ways and compares time and bytes allocated:
+ *   println  -> displayinfo()/showBalance() with System.out pointed at the file (8KB buffer, flush per line like the console)
+ *   renderer -> displayinfo(RecordRenderer)/showBalance(RecordRenderer) into one 64KB buffer and a FileChannel
+ * Both files must have the same bytes.
+ */
+public class RenderBenchmark {
+    private static final int RECORDS = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // the Student constructor prints a line
+        Student[] students = new Student[RECORDS];
+        ATM[] atms = new ATM[RECORDS];
+        for(int i = 0; i < RECORDS; i++){
+            students[i] = new Student("Student" + i, 18 + i % 10, i, "B.Tech");
+            atms[i] = new ATM("Account" + i, 1000 + i);
+        }
+        System.setOut(console);
+
+        Path printed = Files.createTempFile("println", ".txt");
+        Path rendered = Files.createTempFile("renderer", ".txt");
+        for(int round = 1; round <= 3; round++){
+            long allocated = allocatedBytes();
+            long t0 = System.nanoTime();
+            try(PrintStream file = new PrintStream(new BufferedOutputStream(new FileOutputStream(printed.toFile()), 8192), true)){
+                System.setOut(file);
+                for(int i = 0; i < RECORDS; i++){
+                    students[i].displayinfo();
+                    atms[i].showBalance();
+                }
+            } finally {
+                System.setOut(console);
+            }
+            long t1 = System.nanoTime();
+            long printlnBytes = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            try(RecordRenderer out = new RecordRenderer(FileChannel.open(rendered, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING), 1 << 16)){
+                for(int i = 0; i < RECORDS; i++){
+                    students[i].displayinfo(out);
+                    atms[i].showBalance(out);
+                }
+            }
+            long t2 = System.nanoTime();
+            long rendererBytes = allocatedBytes() - allocated;
+
+            System.out.printf("round %d: println %d ms, %,d bytes allocated | renderer %d ms, %,d bytes allocated%n", round,
+                    (t1 - t0) / 1_000_000, printlnBytes, (t2 - t1) / 1_000_000, rendererBytes);
+        }
+        System.out.println("same output: " + Arrays.equals(Files.readAllBytes(printed), Files.readAllBytes(rendered)));
+        Files.delete(printed);
+        Files.delete(rendered);
+    }
+
+    //bytes allocated by this thread so far (HotSpot only, -1 elsewhere)
+    private static long allocatedBytes(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean){
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
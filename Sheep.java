@@ -0,0 +1,11 @@
+class Sheep extends Animal{
+    @Override
+    void sound() {
+        System.out.println("Sheep is bleating");
+    }
+
+    @Override
+    int soundLevel() {
+        return 55;
+    }
+}
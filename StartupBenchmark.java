@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.spi.ToolProvider;
+import java.util.stream.Stream;
+
+/*
+ * Startup mode for the small main() programs of this repo, with an AppCDS archive (Application Class Data Sharing).
+ *
+ * Most of the time of a short java run is the JVM loading, parsing and verifying classes. CDS does that work once
+ * and saves the result in an archive file; the next runs map the file and skip it. The JDK comes with an archive
+ * for its own classes, AppCDS adds the classes of the application (and the JDK classes it uses) on top.
+ *
+ *   java StartupBenchmark build cds      -> cds/app.jar and cds/app.jsa (classes loaded by one run of every entry point)
+ *   java -XX:SharedArchiveFile=cds/app.jsa -cp cds/app.jar ATM      -> startup mode
+ *   java StartupBenchmark [runs]         -> builds into a temp directory, then starts every entry point
+ *                                           with -Xshare:off, with the JDK archive only, and with AppCDS,
+ *                                           and prints the median time until the first line of output
+ *
+ * The archive only works with the same java version and the same jar (path and timestamp), AppCDS cannot
+ * archive classes from a directory, that is why the classes are put into app.jar first.
+ * Run it from the directory with the compiled classes: java -cp out StartupBenchmark
+ */
+public class StartupBenchmark {
+    //entry point and its arguments
+    static final String[][] ENTRY_POINTS = {
+            {"ATM"},
+            {"Test"},
+            {"ConstructorDemo"},
+            {"StaticKeyword"},
+            {"Inheritance"},
+            {"Polymorphism"},
+            {"Build"},
+            {"course"},
+            {"ExceptionHandling.Question2"},
+            {"Multithreading.Threading"},
+            {"Advance_Multithreading.Driver"},
+            {"ExecuterService.App"},
+    };
+    static final String[] MODES = {"-Xshare:off", "JDK CDS", "AppCDS"};
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && args[0].equals("train")){
+            train();
+            return;
+        }
+        if(args.length > 0 && args[0].equals("build")){
+            Path dir = Path.of(args.length > 1 ? args[1] : "cds");
+            build(dir);
+            System.out.println("startup mode: java -XX:SharedArchiveFile=" + dir.resolve("app.jsa")
+                    + " -cp " + dir.resolve("app.jar") + " <entry point>");
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        if(runs <= 0){
+            throw new IllegalArgumentException("runs must be at least 1: " + runs);
+        }
+        Path dir = Files.createTempDirectory("cds");
+        long t0 = System.nanoTime();
+        build(dir);
+        System.out.printf("archive built in %.1fs, %d KB%n%n", (System.nanoTime() - t0) / 1e9,
+                Files.size(dir.resolve("app.jsa")) / 1024);
+
+        System.out.printf("%-30s %33s   %33s%n", "", "first output, median ms", "exit, median ms");
+        System.out.printf("%-30s", "entry point");
+        for(int k = 0; k < 2; k++){
+            for(String mode: MODES){
+                System.out.printf(" %10s", mode);
+            }
+            System.out.print("  ");
+        }
+        System.out.println();
+        for(String[] entry: ENTRY_POINTS){
+            long[][] first = new long[MODES.length][runs];
+            long[][] exit = new long[MODES.length][runs];
+            for(int r = 0; r < runs; r++){
+                for(int m = 0; m < MODES.length; m++){ // modes take turns, so noise hits all of them
+                    long[] t = run(command(dir, m, entry));
+                    first[m][r] = t[0];
+                    exit[m][r] = t[1];
+                }
+            }
+            System.out.printf("%-30s", entry[0]);
+            for(long[][] times: new long[][][]{first, exit}){
+                for(int m = 0; m < MODES.length; m++){
+                    System.out.printf(" %10.1f", median(times[m]) / 1e6);
+                }
+                System.out.print("  ");
+            }
+            System.out.println();
+        }
+        deleteAll(dir);
+    }
+
+    //app.jar from the class directory, then one training run that writes the archive when it exits
+    static void build(Path dir) throws IOException, InterruptedException, URISyntaxException {
+        Files.createDirectories(dir);
+        Path classes = Path.of(StartupBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path jar = dir.resolve("app.jar").toAbsolutePath();
+        Path archive = dir.resolve("app.jsa").toAbsolutePath();
+        Files.deleteIfExists(jar);
+        Files.deleteIfExists(archive);
+        if(Files.isDirectory(classes)){
+            ToolProvider tool = ToolProvider.findFirst("jar")
+                    .orElseThrow(() -> new IllegalStateException("the jar tool needs a full JDK"));
+            int rc = tool.run(System.out, System.err, "--create", "--file", jar.toString(), "-C", classes.toString(), ".");
+            if(rc != 0){
+                throw new IllegalStateException("jar failed: " + rc);
+            }
+        } else {
+            Files.copy(classes, jar);
+        }
+        Process training = new ProcessBuilder(java(), "-XX:ArchiveClassesAtExit=" + archive, "-cp", jar.toString(),
+                "StartupBenchmark", "train")
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if(training.waitFor() != 0 || !Files.exists(archive)){
+            throw new IllegalStateException("training run failed, no archive written");
+        }
+        //-Xshare:on fails instead of quietly running without the archive when it cannot be used
+        Process check = new ProcessBuilder(java(), "-Xshare:on", "-XX:SharedArchiveFile=" + archive, "-cp", jar.toString(),
+                "StaticKeyword").redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if(check.waitFor() != 0){
+            throw new IllegalStateException("archive " + archive + " cannot be used");
+        }
+    }
+
+    //runs every entry point once in this JVM, so all their classes get loaded (and archived at exit)
+    static void train() throws ReflectiveOperationException {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try{
+            for(String[] entry: ENTRY_POINTS){
+                try{
+                    Class.forName(entry[0]).getMethod("main", String[].class)
+                            .invoke(null, (Object) Arrays.copyOfRange(entry, 1, entry.length));
+                } catch (InvocationTargetException e) {
+                    console.println(entry[0] + " failed in training: " + e.getCause());
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+        //main returns, the JVM waits for the threads the entry points started and then writes the archive
+    }
+
+    static List<String> command(Path dir, int mode, String[] entry){
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java());
+        if(mode == 0){
+            cmd.add("-Xshare:off");
+        } else if(mode == 2){
+            cmd.add("-XX:SharedArchiveFile=" + dir.resolve("app.jsa").toAbsolutePath());
+        }
+        cmd.add("-cp");
+        cmd.add(dir.resolve("app.jar").toAbsolutePath().toString());
+        cmd.addAll(Arrays.asList(entry));
+        return cmd;
+    }
+
+    //{nanos until the first byte of output, nanos until the process ended}
+    static long[] run(List<String> cmd) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        long first = -1;
+        byte[] buffer = new byte[8192];
+        try(InputStream out = p.getInputStream()){
+            int n = out.read(buffer, 0, 1);
+            if(n > 0){
+                first = System.nanoTime() - start;
+            }
+            while(out.read(buffer) >= 0){
+                //drain, a full pipe would block the child
+            }
+        }
+        int rc = p.waitFor();
+        long exit = System.nanoTime() - start;
+        if(rc != 0){
+            throw new IllegalStateException(cmd + " exited with " + rc);
+        }
+        return new long[]{first < 0 ? exit : first, exit};
+    }
+
+    static String java(){
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    static long median(long[] values){
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    static void deleteAll(Path dir) throws IOException {
+        try(Stream<Path> files = Files.list(dir)){
+            for(Path f: (Iterable<Path>) files::iterator){
+                Files.delete(f);
+            }
+        }
+        Files.delete(dir);
+    }
+}
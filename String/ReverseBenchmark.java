@@ -0,0 +1,61 @@
+package String;
+
+import java.util.SplittableRandom;
+
+/*
+ * Run: java String.ReverseBenchmark [megabytes]
+ * Makes a text of mostly ASCII with some accents (combining marks) and emoji (surrogate pairs) and compares
+ *   new StringBuilder(text).reverse().toString()
+ *   ReverseString.reverse(text)                  -> new String, clusters kept
+ *   ReverseString.reverse(char[], 0, n)          -> in place, no new array
+ *   ReverseString.reverseParallel(char[])        -> in place on all cores
+ * and checks that reversing twice gives the text back.
+ */
+public class ReverseBenchmark {
+    public static void main(String[] args) {
+        int chars = (args.length > 0 ? Integer.parseInt(args[0]) : 16) << 20;
+        String text = text(chars);
+        char[] work = text.toCharArray();
+
+        for(int round = 1; round <= 5; round++){
+            long t0 = System.nanoTime();
+            String sb = new StringBuilder(text).reverse().toString();
+            long t1 = System.nanoTime();
+            String ours = ReverseString.reverse(text);
+            long t2 = System.nanoTime();
+            ReverseString.reverse(work, 0, work.length);
+            long t3 = System.nanoTime();
+            ReverseString.reverseParallel(work);
+            long t4 = System.nanoTime();
+            System.out.printf("round %d (%d MB chars): StringBuilder %d ms | reverse(CharSequence) %d ms | in place %d ms | parallel in place %d ms%n",
+                    round, chars >> 20, (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000, (t4 - t3) / 1_000_000);
+            if(sb.length() != ours.length()){
+                throw new AssertionError("length changed");
+            }
+        }
+        //work was reversed twice per round, so it must be the text again
+        boolean back = String.valueOf(work).equals(text) && ReverseString.reverse(ReverseString.reverse(text)).equals(text);
+        char[] once = text.toCharArray();
+        ReverseString.reverseParallel(once);
+        boolean sameAsSequential = String.valueOf(once).equals(ReverseString.reverse(text));
+        System.out.println("reverse twice gives the text back: " + back + ", parallel = sequential: " + sameAsSequential);
+    }
+
+    private static String text(int chars){
+        SplittableRandom random = new SplittableRandom(3);
+        StringBuilder sb = new StringBuilder(chars + 8);
+        while(sb.length() < chars){
+            int roll = random.nextInt(100);
+            if(roll < 2){
+                sb.append("\uD83D\uDC4D"); // emoji, surrogate pair
+            } else if(roll < 4){
+                sb.append('e').append('\u0301'); // e + combining accent
+            } else if(roll < 5){
+                sb.append("\uD83C\uDDEE\uD83C\uDDF3"); // flag
+            } else {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,12 +1,215 @@
 package String;
 
+import java.nio.CharBuffer;
+import java.util.stream.IntStream;
+
+/*
+ * String reversal that keeps every character the user sees in one piece:
+ *  - surrogate pairs (emoji and other characters above U+FFFF are 2 chars in Java)
+ *  - combining marks: "e" + U+0301 (accent) stays "é" and does not move the accent to the next letter
+ *  - emoji built from several parts: skin tone modifiers, ZWJ sequences (family emoji), flags (2 regional indicators)
+ * StringBuilder.reverse() only handles the first point.
+ *
+ * In place trick: first reverse the chars inside every character cluster, then reverse the whole range,
+ * the clusters come back in their original inner order but in reverse position. No second array is needed.
+ */
 public class ReverseString {
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int ZWJ = 0x200D;
+
     public static void main(String[] args) {
 
         int a = 6;
         char []arr = {'a', 'b', 'c' , 'd'};
         String st = String.copyValueOf(arr);
         System.out.println(st);
+
+        reverse(arr, 0, arr.length); // reverses the array itself
+        System.out.println(String.copyValueOf(arr));
+
+        String text = "Cafe\u0301 \uD83D\uDC4D\uD83C\uDFFD \uD83C\uDDEE\uD83C\uDDF3!"; // e + accent, thumbs up + skin tone, flag
+        System.out.println(text + " -> " + reverse(text));
+        System.out.println("StringBuilder.reverse() -> " + new StringBuilder(text).reverse()); // accent moves to the space, flag changes
+    }
+
+    public static String reverse(CharSequence text){
+        char[] out = new char[text.length()];
+        reverse(text, out, 0);
+        return new String(out);
+    }
+
+    //writes text reversed into dst starting at dstOffset, text itself is not changed
+    public static void reverse(CharSequence text, char[] dst, int dstOffset){
+        int n = text.length();
+        if(dstOffset < 0 || dstOffset + n > dst.length){
+            throw new IndexOutOfBoundsException("dst is too small: need " + n + " chars from " + dstOffset);
+        }
+        //bulk copy into the caller's array (one pass, no temporary), then reverse it there in place
+        if(text instanceof String){
+            ((String) text).getChars(0, n, dst, dstOffset);
+        } else if(text instanceof StringBuilder){
+            ((StringBuilder) text).getChars(0, n, dst, dstOffset);
+        } else if(text instanceof CharBuffer){
+            ((CharBuffer) text).duplicate().get(dst, dstOffset, n);
+        } else {
+            for(int i = 0; i < n; i++){
+                dst[dstOffset + i] = text.charAt(i);
+            }
+        }
+        reverse(dst, dstOffset, dstOffset + n);
+    }
+
+    //reverses a[from, to) in place
+    public static void reverse(char[] a, int from, int to){
+        if(from < 0 || to > a.length || from > to){
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") of " + a.length);
+        }
+        reverseClusters(a, CharBuffer.wrap(a), from, to);
+        reverseChars(a, from, to);
+    }
+
+    //reverses the chars between position and limit in place, the buffer may be direct (off heap)
+    public static void reverse(CharBuffer buf){
+        if(buf.hasArray()){
+            reverse(buf.array(), buf.arrayOffset() + buf.position(), buf.arrayOffset() + buf.limit());
+            return;
+        }
+        CharBuffer abs = buf.duplicate().clear(); // position 0, so charAt(i) reads index i like get(i)
+        int from = buf.position();
+        int to = buf.limit();
+        for(int i = from; i < to; ){
+            int end = clusterEnd(abs, i, to);
+            reverseChars(abs, i, end);
+            i = end;
+        }
+        reverseChars(abs, from, to);
+    }
+
+    //same result as reverse(a, 0, a.length), big arrays are done on all cores
+    public static void reverseParallel(char[] a){
+        int n = a.length;
+        if(n < PARALLEL_THRESHOLD){
+            reverse(a, 0, n);
+            return;
+        }
+        CharBuffer view = CharBuffer.wrap(a);
+        int parts = Runtime.getRuntime().availableProcessors() * 4;
+        int[] bounds = new int[parts + 1];
+        bounds[parts] = n;
+        for(int p = 1; p < parts; p++){
+            //move every cut forward to the start of a cluster, so no cluster is split between two parts
+            int cut = Math.max(bounds[p - 1], (int) ((long) n * p / parts));
+            while(cut < n && !isClusterStart(view, cut)){
+                cut++;
+            }
+            bounds[p] = cut;
+        }
+        IntStream.range(0, parts).parallel().forEach(p -> reverseClusters(a, view, bounds[p], bounds[p + 1]));
+        //second step: swap a[i] with a[n-1-i], every part of the first half is independent
+        int half = n / 2;
+        int chunk = (half + parts - 1) / parts;
+        IntStream.range(0, parts).parallel().forEach(p ->{
+            for(int i = p * chunk, end = Math.min(half, (p + 1) * chunk); i < end; i++){
+                char t = a[i];
+                a[i] = a[n - 1 - i];
+                a[n - 1 - i] = t;
+            }
+        });
     }
-}
 
+    //view is the same array as a CharSequence, only used for the rare chars that need the full cluster rules
+    private static void reverseClusters(char[] a, CharSequence view, int from, int to){
+        int i = from;
+        while(i < to){
+            if(a[i] < 0x300 && (i + 1 == to || a[i + 1] < 0x300)){
+                i++; // plain char with a plain char after it: a cluster of one, nothing to do
+                continue;
+            }
+            int end = clusterEnd(view, i, to);
+            if(end - i > 1){
+                reverseChars(a, i, end);
+            }
+            i = end;
+        }
+    }
+
+    private static void reverseChars(char[] a, int from, int to){
+        for(int i = from, j = to - 1; i < j; i++, j--){
+            char t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private static void reverseChars(CharBuffer buf, int from, int to){
+        for(int i = from, j = to - 1; i < j; i++, j--){
+            char t = buf.get(i);
+            buf.put(i, buf.get(j));
+            buf.put(j, t);
+        }
+    }
+
+    //end of the character cluster that starts at i
+    static int clusterEnd(CharSequence s, int i, int end){
+        int first = codePointAt(s, i, end);
+        int j = i + Character.charCount(first);
+        if(isRegionalIndicator(first) && j < end && isRegionalIndicator(codePointAt(s, j, end))){
+            j += 2; // two regional indicators make one flag
+        }
+        boolean joined = false;
+        while(j < end){
+            if(s.charAt(j) < 0x300 && !joined){
+                break; // fast path: nothing below U+0300 attaches to the previous character
+            }
+            int cp = codePointAt(s, j, end);
+            if(!joined && !isExtending(cp)){
+                break;
+            }
+            joined = cp == ZWJ; // the character after a zero width joiner belongs to this cluster too
+            j += Character.charCount(cp);
+        }
+        return j;
+    }
+
+    private static boolean isClusterStart(CharSequence s, int i){
+        if(i == 0){
+            return true;
+        }
+        char c = s.charAt(i);
+        char prev = s.charAt(i - 1);
+        if(Character.isLowSurrogate(c) && Character.isHighSurrogate(prev)){
+            return false;
+        }
+        if(c < 0x300){
+            return prev != ZWJ;
+        }
+        int cp = codePointAt(s, i, s.length());
+        int before = Character.codePointBefore(s, i);
+        //inside a run of regional indicators we cannot tell the pairs apart locally, so never cut there
+        return !isExtending(cp) && before != ZWJ && !(isRegionalIndicator(cp) && isRegionalIndicator(before));
+    }
+
+    private static boolean isExtending(int cp){
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.COMBINING_SPACING_MARK
+                || cp == ZWJ
+                || (cp >= 0x1F3FB && cp <= 0x1F3FF)  // emoji skin tone
+                || (cp >= 0xE0020 && cp <= 0xE007F); // tag characters (subdivision flags)
+    }
+
+    private static boolean isRegionalIndicator(int cp){
+        return cp >= 0x1F1E6 && cp <= 0x1F1FF;
+    }
+
+    //like Character.codePointAt but never reads at or after end
+    private static int codePointAt(CharSequence s, int i, int end){
+        char c = s.charAt(i);
+        if(Character.isHighSurrogate(c) && i + 1 < end){
+            char d = s.charAt(i + 1);
+            if(Character.isLowSurrogate(d)){
+                return Character.toCodePoint(c, d);
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Students saved in a binary file with fixed width records, read through memory mapping.
+ *
+ * data file:  64 byte header (magic, version, record count) then one 64 byte record per student
+ *             rollno int | age int | name: length byte + 35 bytes UTF-8 | course: length byte + 19 bytes UTF-8
+ * index file: 16 byte header (magic, slot count, number of records indexed) then an open addressing hash table
+ *             rollno -> record number, also memory mapped (slot = rollno int, row + 1 int).
+ *             When the header does not match the data file the index is built again on open.
+ *
+ * Opening maps both files and reads nothing else, so it takes milliseconds even for 10M students.
+ * The OS loads only the pages that are actually touched. View is a flyweight: it only remembers a record
+ * number and reads the fields straight from the mapped file, no Student object and no copy on the heap.
+ * add() writes after the last record and then bumps the count in the header, earlier records are never rewritten.
+ * One thread may add while no other thread reads; several threads may read at the same time, each with its own View.
+ */
+public class StudentFile implements AutoCloseable {
+    public static final int RECORD = 64;
+    public static final int NAME_MAX = 35;
+    public static final int COURSE_MAX = 19;
+    private static final int HEADER = 64;
+    private static final int MAGIC = 0x53545544; // "STUD"
+    private static final int VERSION = 1;
+    private static final int CHUNK = 1 << 30; // one mapping covers at most 1GB, 64 divides it so records never cross chunks
+    private static final int NAME_AT = 8;
+    private static final int COURSE_AT = 8 + 1 + NAME_MAX;
+    private static final int INDEX_MAGIC = 0x53494458; // "SIDX"
+    private static final int INDEX_HEADER = 16;
+
+    private final FileChannel data;
+    private final Path indexPath;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private long count;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slots;
+
+    public StudentFile(Path file) throws IOException {
+        this.data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.indexPath = file.resolveSibling(file.getFileName() + ".idx");
+        if(data.size() == 0){
+            map(0, HEADER + 1024L * RECORD);
+            chunks.get(0).putInt(0, MAGIC).putInt(4, VERSION).putLong(8, 0);
+        } else {
+            map(0, Math.min(data.size(), CHUNK));
+            if(chunks.get(0).getInt(0) != MAGIC || chunks.get(0).getInt(4) != VERSION){
+                data.close();
+                throw new IOException(file + " is not a student file");
+            }
+        }
+        count = chunks.get(0).getLong(8);
+        for(long end = CHUNK; end < HEADER + count * RECORD; end += CHUNK){
+            map(chunks.size(), Math.min(data.size() - end, CHUNK));
+        }
+        //no index yet, an old or damaged one, or a crash between writing a record and indexing it
+        if(!Files.exists(indexPath) || !openIndex(indexPath)){
+            rebuildIndex(Math.max(1024, Integer.highestOneBit((int) Math.min(count * 4, 1 << 27))));
+        }
+    }
+
+    public long size(){
+        return count;
+    }
+
+    public View view(){
+        return new View();
+    }
+
+    //returns the record number. name and course are cut at 35 and 19 bytes.
+    public long add(String name, int age, int rollno, String course) throws IOException {
+        long row = count;
+        long pos = HEADER + row * RECORD;
+        ensureMapped(pos + RECORD);
+        ByteBuffer chunk = chunks.get((int) (pos / CHUNK));
+        int at = (int) (pos % CHUNK);
+        chunk.putInt(at, rollno).putInt(at + 4, age);
+        putText(chunk, at + NAME_AT, name, NAME_MAX);
+        putText(chunk, at + COURSE_AT, course, COURSE_MAX);
+        if((count + 1) * 2 > slots){
+            rebuildIndex(slots * 2);
+        }
+        count++;
+        chunks.get(0).putLong(8, count); // the record counts only after it is fully written
+        insert(rollno, row);
+        index.putLong(8, count); // and it is indexed only after the insert, open() compares the two counts
+        return row;
+    }
+
+    public long add(Student s) throws IOException {
+        return add(s.name, s.age, s.rollno, s.course);
+    }
+
+    //writes mapped pages to disk
+    public void force(){
+        for(MappedByteBuffer chunk: chunks){
+            chunk.force();
+        }
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        data.close();
+        indexChannel.close();
+    }
+
+    //flyweight over one record of the mapped file
+    public class View {
+        private ByteBuffer chunk;
+        private int at;
+        private long row = -1;
+
+        public View moveTo(long row){
+            if(row < 0 || row >= count){
+                throw new IndexOutOfBoundsException("no such record: " + row);
+            }
+            long pos = HEADER + row * RECORD;
+            this.chunk = chunks.get((int) (pos / CHUNK));
+            this.at = (int) (pos % CHUNK);
+            this.row = row;
+            return this;
+        }
+
+        //moves to the student with this rollno, false if there is none
+        public boolean find(int rollno){
+            long found = lookup(rollno);
+            if(found < 0){
+                return false;
+            }
+            moveTo(found);
+            return true;
+        }
+
+        public long row(){
+            return row;
+        }
+
+        public int rollno(){
+            return chunk.getInt(at);
+        }
+
+        public int age(){
+            return chunk.getInt(at + 4);
+        }
+
+        //makes a String, use displayinfo(RecordRenderer) to print without one
+        public String name(){
+            return text(NAME_AT);
+        }
+
+        public String course(){
+            return text(COURSE_AT);
+        }
+
+        //same line as Student.displayinfo(), bytes go from the mapped file straight into the renderer
+        public void displayinfo(RecordRenderer out){
+            out.append("Name: ").append(chunk, at + NAME_AT + 1, chunk.get(at + NAME_AT) & 0xFF).append(", Age: ").append(age())
+                    .append(", Rollno: ").append(rollno()).append(", Course: ")
+                    .append(chunk, at + COURSE_AT + 1, chunk.get(at + COURSE_AT) & 0xFF).newline();
+        }
+
+        private String text(int field){
+            byte[] bytes = new byte[chunk.get(at + field) & 0xFF];
+            chunk.get(at + field + 1, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private long lookup(int rollno){
+        int mask = slots - 1;
+        for(int i = hash(rollno) & mask; ; i = (i + 1) & mask){
+            int row = index.getInt(INDEX_HEADER + i * 8 + 4) - 1;
+            if(row < 0){
+                return -1;
+            }
+            if(index.getInt(INDEX_HEADER + i * 8) == rollno){
+                return row;
+            }
+        }
+    }
+
+    //a rollno that is already there points to the new record afterwards
+    private void insert(int rollno, long row){
+        int mask = slots - 1;
+        int i = hash(rollno) & mask;
+        while(index.getInt(INDEX_HEADER + i * 8 + 4) != 0 && index.getInt(INDEX_HEADER + i * 8) != rollno){
+            i = (i + 1) & mask;
+        }
+        index.putInt(INDEX_HEADER + i * 8, rollno).putInt(INDEX_HEADER + i * 8 + 4, (int) row + 1);
+    }
+
+    //writes a new index file with more slots next to the old one, then swaps them
+    private void rebuildIndex(int newSlots) throws IOException {
+        if(newSlots > 1 << 27){
+            throw new IOException("index is full, at most " + (1 << 26) + " students per file");
+        }
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        FileChannel old = indexChannel;
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            index = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) newSlots * 8);
+            slots = newSlots;
+            View v = new View();
+            for(long row = 0; row < count; row++){
+                insert(v.moveTo(row).rollno(), row);
+            }
+            index.putInt(0, INDEX_MAGIC).putInt(4, newSlots).putLong(8, count);
+            index.force();
+        }
+        if(old != null){
+            old.close();
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if(!openIndex(indexPath)){
+            throw new IOException(indexPath + " was just written but does not match the data file");
+        }
+    }
+
+    //false when the index cannot be used for this data file: the header is wrong, the size does not fit the
+    //slot count, or it indexed a different number of records than the data file has
+    private boolean openIndex(Path path) throws IOException {
+        indexChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = indexChannel.size();
+        if(size < INDEX_HEADER){
+            return false;
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        slots = index.getInt(4);
+        return index.getInt(0) == INDEX_MAGIC && slots > 0 && Integer.bitCount(slots) == 1
+                && size == INDEX_HEADER + (long) slots * 8 && index.getLong(8) == count;
+    }
+
+    //maps more of the data file when the next record does not fit, the file grows by doubling inside a chunk
+    private void ensureMapped(long end) throws IOException {
+        int last = chunks.size() - 1;
+        long mappedEnd = (long) last * CHUNK + chunks.get(last).capacity();
+        if(end <= mappedEnd){
+            return;
+        }
+        if(chunks.get(last).capacity() < CHUNK){
+            map(last, Math.min(CHUNK, Math.max(chunks.get(last).capacity() * 2L, end - (long) last * CHUNK)));
+        } else {
+            map(last + 1, HEADER + 1024L * RECORD);
+        }
+    }
+
+    private void map(int chunk, long length) throws IOException {
+        MappedByteBuffer buffer = data.map(FileChannel.MapMode.READ_WRITE, (long) chunk * CHUNK, length);
+        if(chunk < chunks.size()){
+            chunks.set(chunk, buffer);
+        } else {
+            chunks.add(buffer);
+        }
+    }
+
+    private static void putText(ByteBuffer chunk, int at, String text, int max){
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, max);
+        while(length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80){
+            length--; // do not cut a character in the middle
+        }
+        chunk.put(at, (byte) length);
+        chunk.put(at + 1, bytes, 0, length);
+    }
+
+    private static int hash(int key){
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
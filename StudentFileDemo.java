@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * Run: java StudentFileDemo [students] [file]
+ * Writes the students to a StudentFile (only if the file does not exist yet), opens it again
+ * and prints how long the open took and the time per random read by rollno.
+ */
+public class StudentFileDemo {
+    private static final String[] COURSES = {"B.Tech", "M.Tech", "MBA", "BCA", "MCA"};
+
+    public static void main(String[] args) throws IOException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path file = Path.of(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir") + "/students.db");
+        if(!Files.exists(file)){
+            long t0 = System.nanoTime();
+            try(StudentFile db = new StudentFile(file)){
+                for(int i = 0; i < students; i++){
+                    db.add("Student" + i, 18 + i % 10, 100 + i, COURSES[i % COURSES.length]);
+                }
+            }
+            System.out.printf("wrote %,d students in %d ms%n", students, (System.nanoTime() - t0) / 1_000_000);
+        }
+
+        long t0 = System.nanoTime();
+        try(StudentFile db = new StudentFile(file)){
+            long opened = System.nanoTime() - t0;
+            System.out.printf("opened %,d students in %.2f ms%n", db.size(), opened / 1e6);
+
+            StudentFile.View student = db.view();
+            long ages = 0;
+            int reads = 1_000_000;
+            for(int round = 0; round < 3; round++){
+                long t1 = System.nanoTime();
+                for(int i = 0; i < reads; i++){
+                    if(student.find(100 + (int) ((i * 7919L) % db.size()))){
+                        ages += student.age();
+                    }
+                }
+                System.out.printf("random read by rollno: %d ns each (%d)%n", (System.nanoTime() - t1) / reads, ages);
+            }
+            try(RecordRenderer out = RecordRenderer.stdout()){
+                if(student.find(142)){
+                    student.displayinfo(out);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Column store for students: same fields as Student (name, age, rollno, course) but no object per student.
+ *
+ *  age, rollno      -> int[] columns, row i is student i
+ *  course           -> dictionary encoded: every different course name is stored once, rows keep a small int id
+ *  name             -> all names are UTF-8 bytes in one big byte[] (arena), rows keep offset + length
+ *  lookup by rollno -> open addressing hash table of int keys (linear probing), no Integer boxing
+ *
+ * A Student object costs header + 4 fields + 2 String objects (+ their arrays), about 100 bytes or more,
+ * here a row is 5 ints + the name bytes, around 30 bytes for a short name.
+ * A rollno can belong to one row only, add() and setRollno() refuse a rollno that another row already has.
+ */
+public class StudentStore {
+    private int size;
+    private int[] age;
+    private int[] rollno;
+    private int[] courseId;
+    private int[] nameOffset;
+    private int[] nameLength;
+    private byte[] names;
+    private int namesUsed;
+
+    private final Map<String, Integer> courseIds = new HashMap<>();
+    private String[] courses = new String[8];
+
+    //index: slotRow[i] == -1 means empty slot, otherwise slotKey[i] is the rollno of row slotRow[i]
+    private int[] slotKey;
+    private int[] slotRow;
+    private int indexed;
+
+    public StudentStore(){
+        this(16);
+    }
+
+    public StudentStore(int expectedStudents){
+        int capacity = Math.max(16, expectedStudents);
+        age = new int[capacity];
+        rollno = new int[capacity];
+        courseId = new int[capacity];
+        nameOffset = new int[capacity];
+        nameLength = new int[capacity];
+        names = new byte[capacity * 8];
+        int slots = Integer.highestOneBit(capacity * 2 - 1) << 1; // power of two, at most half full
+        slotKey = new int[slots];
+        slotRow = new int[slots];
+        Arrays.fill(slotRow, -1);
+    }
+
+    //returns the row number of the new student.
+    public int add(String name, int age, int rollno, String course){
+        if(findRow(rollno) >= 0){
+            throw new IllegalArgumentException("rollno already taken: " + rollno);
+        }
+        if(size == this.age.length){
+            grow();
+        }
+        int row = size++;
+        this.age[row] = age;
+        this.rollno[row] = rollno;
+        this.courseId[row] = courseId(course);
+        writeName(row, name);
+        index(rollno, row);
+        return row;
+    }
+
+    public int add(Student s){
+        return add(s.name, s.age, s.rollno, s.course);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    //row of the student with this rollno, or -1.
+    public int findRow(int rollno){
+        int mask = slotRow.length - 1;
+        for(int i = hash(rollno) & mask; slotRow[i] != -1; i = (i + 1) & mask){
+            if(slotKey[i] == rollno){
+                return slotRow[i];
+            }
+        }
+        return -1;
+    }
+
+    public String name(int row){
+        check(row);
+        return new String(names, nameOffset[row], nameLength[row], StandardCharsets.UTF_8);
+    }
+
+    public int age(int row){
+        check(row);
+        return age[row];
+    }
+
+    public int rollno(int row){
+        check(row);
+        return rollno[row];
+    }
+
+    public String course(int row){
+        check(row);
+        return courses[courseId[row]];
+    }
+
+    //the old name bytes stay in the arena (not reused), fine when names rarely change.
+    public void setName(int row, String name){
+        check(row);
+        writeName(row, name);
+    }
+
+    public void setAge(int row, int age){
+        check(row);
+        this.age[row] = age;
+    }
+
+    public void setRollno(int row, int rollno){
+        check(row);
+        int owner = findRow(rollno);
+        if(owner == row){
+            return;
+        }
+        if(owner >= 0){
+            throw new IllegalArgumentException("rollno already taken by row " + owner + ": " + rollno);
+        }
+        unindex(this.rollno[row]); // rollnos are unique, so the index entry of the old one is this row's
+        this.rollno[row] = rollno;
+        index(rollno, row);
+    }
+
+    public void setCourse(int row, String course){
+        check(row);
+        courseId[row] = courseId(course);
+    }
+
+    //same output as Student.displayinfo()
+    public void displayinfo(int row){
+        System.out.println("Name: "+name(row)+", Age: "+age(row)+", Rollno: "+rollno(row)+", Course: "+course(row));
+    }
+
+    //same line as displayinfo(row), the name bytes are copied straight from the arena
+    public void displayinfo(int row, RecordRenderer out){
+        check(row);
+        out.append("Name: ").append(names, nameOffset[row], nameLength[row]).append(", Age: ").append(age[row])
+                .append(", Rollno: ").append(rollno[row]).append(", Course: ").append(courses[courseId[row]]).newline();
+    }
+
+    //approximate bytes used by the arrays (what the store keeps on the heap).
+    public long footprintBytes(){
+        long bytes = 5L * 4 * age.length + names.length + 8L * slotKey.length;
+        for(int i = 0; i < courseIds.size(); i++){
+            bytes += 40 + 2L * courses[i].length();
+        }
+        return bytes;
+    }
+
+    private int courseId(String course){
+        Integer id = courseIds.get(course);
+        if(id == null){
+            id = courseIds.size();
+            if(id == courses.length){
+                courses = Arrays.copyOf(courses, id * 2);
+            }
+            courses[id] = course;
+            courseIds.put(course, id);
+        }
+        return id;
+    }
+
+    private void writeName(int row, String name){
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if(namesUsed + bytes.length > names.length){
+            names = Arrays.copyOf(names, Math.max(names.length + (names.length >> 1), namesUsed + bytes.length));
+        }
+        System.arraycopy(bytes, 0, names, namesUsed, bytes.length);
+        nameOffset[row] = namesUsed;
+        nameLength[row] = bytes.length;
+        namesUsed += bytes.length;
+    }
+
+    private void grow(){
+        int capacity = age.length + (age.length >> 1);
+        age = Arrays.copyOf(age, capacity);
+        rollno = Arrays.copyOf(rollno, capacity);
+        courseId = Arrays.copyOf(courseId, capacity);
+        nameOffset = Arrays.copyOf(nameOffset, capacity);
+        nameLength = Arrays.copyOf(nameLength, capacity);
+    }
+
+    private void index(int key, int row){
+        if((indexed + 1) * 2 > slotRow.length){
+            rehash(slotRow.length * 2);
+        }
+        int mask = slotRow.length - 1;
+        int i = hash(key) & mask;
+        while(slotRow[i] != -1 && slotKey[i] != key){
+            i = (i + 1) & mask;
+        }
+        if(slotRow[i] == -1){
+            indexed++;
+        }
+        slotKey[i] = key;
+        slotRow[i] = row;
+    }
+
+    //linear probing delete: move later entries of the same run back so no lookup stops at the hole.
+    private void unindex(int key){
+        int mask = slotRow.length - 1;
+        int i = hash(key) & mask;
+        while(slotRow[i] != -1 && slotKey[i] != key){
+            i = (i + 1) & mask;
+        }
+        if(slotRow[i] == -1){
+            return;
+        }
+        indexed--;
+        int hole = i;
+        for(int j = (hole + 1) & mask; slotRow[j] != -1; j = (j + 1) & mask){
+            int home = hash(slotKey[j]) & mask;
+            //entry j can move into the hole only if its home slot is not between the hole and j (cyclic)
+            if(((j - home) & mask) >= ((j - hole) & mask)){
+                slotKey[hole] = slotKey[j];
+                slotRow[hole] = slotRow[j];
+                hole = j;
+            }
+        }
+        slotRow[hole] = -1;
+    }
+
+    private void rehash(int slots){
+        int[] oldKey = slotKey;
+        int[] oldRow = slotRow;
+        slotKey = new int[slots];
+        slotRow = new int[slots];
+        Arrays.fill(slotRow, -1);
+        indexed = 0;
+        for(int i = 0; i < oldRow.length; i++){
+            if(oldRow[i] != -1){
+                index(oldKey[i], oldRow[i]);
+            }
+        }
+    }
+
+    private static int hash(int key){
+        int h = key * 0x9E3779B9; // spreads sequential rollnos over the table
+        return h ^ (h >>> 16);
+    }
+
+    private void check(int row){
+        if(row < 0 || row >= size){
+            throw new IndexOutOfBoundsException("no such row: " + row);
+        }
+    }
+}
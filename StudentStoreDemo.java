@@ -0,0 +1,59 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Loads the same 1M students as Student objects (+ HashMap<Integer, Student> by rollno) and into a StudentStore,
+ * and prints heap used and time for 1M random lookups by rollno in both.
+ */
+public class StudentStoreDemo {
+    private static final int STUDENTS = 1_000_000;
+    private static final String[] COURSES = {"B.Tech", "M.Tech", "MBA", "BCA", "MCA"};
+
+    public static void main(String[] args){
+        PrintStream out = System.out;
+        long before = usedHeap();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // the Student constructor prints a line
+        Map<Integer, Student> objects = new HashMap<>();
+        for(int i = 0; i < STUDENTS; i++){
+            objects.put(1000 + i, new Student("Student" + i, 18 + i % 10, 1000 + i, COURSES[i % COURSES.length]));
+        }
+        System.setOut(out);
+        long objectHeap = usedHeap() - before;
+
+        before = usedHeap();
+        StudentStore store = new StudentStore(STUDENTS);
+        for(int i = 0; i < STUDENTS; i++){
+            store.add("Student" + i, 18 + i % 10, 1000 + i, COURSES[i % COURSES.length]);
+        }
+        long storeHeap = usedHeap() - before;
+
+        System.out.printf("Student objects + HashMap: %,d bytes%n", objectHeap);
+        System.out.printf("StudentStore:              %,d bytes (arrays %,d)%n", storeHeap, store.footprintBytes());
+
+        for(int round = 0; round < 3; round++){
+            long sum = 0;
+            long t0 = System.nanoTime();
+            for(int i = 0; i < STUDENTS; i++){
+                sum += objects.get(1000 + (int) ((i * 7919L) % STUDENTS)).age;
+            }
+            long t1 = System.nanoTime();
+            for(int i = 0; i < STUDENTS; i++){
+                sum += store.age(store.findRow(1000 + (int) ((i * 7919L) % STUDENTS)));
+            }
+            long t2 = System.nanoTime();
+            System.out.printf("1M lookups by rollno: HashMap %d ms, StudentStore %d ms (%d)%n",
+                    (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000, sum);
+        }
+        store.displayinfo(store.findRow(1042));
+    }
+
+    private static long usedHeap(){
+        Runtime rt = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,15 @@
+//Car class blue print of car;
+class car{
+    String brand;
+    String color;
+    int price;
+
+    public void displayinfo(){
+        System.out.println("The car is from brand: "+brand+" and color is "+color+" and price is "+price);
+    }
+    //same line written into a RecordRenderer buffer, for printing many cars
+    public void displayinfo(RecordRenderer out){
+        out.append("The car is from brand: ").append(brand).append(" and color is ").append(color)
+                .append(" and price is ").append(price).newline();
+    }
+}
\ No newline at end of file
@@ -21,6 +21,11 @@ public class course {
         System.out.println("Student has be assigned at "+name+", and the price of the course is "+price);
     }
 
+    //Same as displayInfo() but written into a RecordRenderer buffer
+    public void displayInfo(RecordRenderer out){
+        out.append("Student has be assigned at ").append(name).append(", and the price of the course is ").append(price).newline();
+    }
+
     //Method where object is being passed
     public void displayInfo(course c1){
         System.out.println("Student has be assigned at "+c1.name+", and the price of the course is "+c1.price);